@@ -0,0 +1,75 @@
+package ee.ut.robotex.benchmark;
+
+import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.simulation.StepProfiler;
+
+// checks that the parts meant to be allocation free really don't allocate once warmed up,
+// exits with an error when they allocate in every round, runs in the test phase of the
+// benchmarks module
+//
+// the match is stepped as usual and the step profiler tells the allocations of the world
+// step and of every step listener apart, the robots include their camera, drivetrain,
+// dribbler and coilgun, the AI controllers are only reported
+public class AllocationCheck {
+	private static final int WARMUP_STEPS = 20000;
+	private static final int MEASURED_STEPS = 20000;
+	private static final int ROUNDS = 3;
+
+	public static void main(String[] args) {
+		MatchState match = new MatchState();
+		match.setupMatch();
+
+		Simulation simulation = match.simulation;
+
+		simulation.setProfilingEnabled(true);
+
+		StepProfiler profiler = simulation.getProfiler();
+
+		if (!profiler.isAllocationSupported()) {
+			System.out.println("Allocation counting is not supported by this JVM");
+
+			return;
+		}
+
+		// the first profiled steps warm up the profiler itself
+		for (int i = 0; i < WARMUP_STEPS; i++) {
+			simulation.step();
+		}
+
+		// compilation can make a few allocations of its own once in a while, an allocation
+		// made by the simulation shows up in every round
+		boolean passed = false;
+
+		for (int round = 1; round <= ROUNDS && !passed; round++) {
+			profiler.reset();
+
+			for (int i = 0; i < MEASURED_STEPS; i++) {
+				simulation.step();
+			}
+
+			System.out.println("Round " + round + " of " + MEASURED_STEPS + " steps");
+
+			passed = report("World step", profiler.getWorldAllocatedBytes(), true);
+
+			for (StepProfiler.ListenerStats stats : profiler.getListenerStats()) {
+				boolean checked = !(stats.getListener() instanceof RobotController);
+
+				passed &= report(stats.getName(), stats.getAllocatedBytes(), checked);
+			}
+		}
+
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	private static boolean report(String name, long bytes, boolean checked) {
+		double perStep = (double)bytes / MEASURED_STEPS;
+		String result = !checked ? "not checked" : bytes == 0 ? "ok" : "FAILED";
+
+		System.out.println(String.format("%-28s %10.2f B/step %s", name, perStep, result));
+
+		return !checked || bytes == 0;
+	}
+}
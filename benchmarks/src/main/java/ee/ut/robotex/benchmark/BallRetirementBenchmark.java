@@ -0,0 +1,59 @@
+package ee.ut.robotex.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ut.robotex.headless.HeadlessRunner;
+import ee.ut.robotex.headless.MatchConfig;
+import ee.ut.robotex.simulation.BallRetirement;
+import ee.ut.robotex.simulation.Simulation;
+
+// a whole match with each way of retiring scored balls, every invocation plays the same
+// seeded match from the kickoff, built outside the timed part so only the steps count
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class BallRetirementBenchmark {
+	@Param({"KEEP", "FREEZE", "RESPAWN"})
+	public BallRetirement retirement;
+
+	@Param({"180"})
+	public int seconds;
+
+	private Simulation simulation;
+	private int steps;
+
+	@Setup(Level.Invocation)
+	public void setupMatch() {
+		MatchConfig config = new MatchConfig();
+
+		config.setBallRetirement(retirement);
+
+		simulation = new HeadlessRunner(config).createSimulation(MatchState.SEED);
+		steps = (int)Math.ceil(seconds / simulation.getTimeStep());
+	}
+
+	@Benchmark
+	public int match() {
+		for (int i = 0; i < steps; i++) {
+			simulation.step();
+		}
+
+		return simulation.getYellowScore() + simulation.getBlueScore();
+	}
+}
@@ -0,0 +1,39 @@
+package ee.ut.robotex.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ut.robotex.headless.MatchConfig;
+import ee.ut.robotex.robot.telliskivi.Robot;
+
+// building the camera reply string the network controller sends for every request
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CamBenchmark {
+	public static class TelliskiviMatch extends MatchState {
+		@Override
+		protected void configure(MatchConfig config) {
+			config.setBlueRobot("telliskivi");
+			config.setBlueController("none");
+		}
+
+		public Robot getTelliskivi() {
+			return (Robot)simulation.getBlueRobot();
+		}
+	}
+
+	@Benchmark
+	public String cam(TelliskiviMatch match) {
+		return match.getTelliskivi().cam();
+	}
+}
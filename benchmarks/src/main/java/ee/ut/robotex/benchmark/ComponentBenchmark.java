@@ -0,0 +1,85 @@
+package ee.ut.robotex.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.robot.components.Coilgun;
+import ee.ut.robotex.robot.components.Dribbler;
+import ee.ut.robotex.robot.components.Drivetrain;
+import ee.ut.robotex.robot.ramses.Ramses;
+import ee.ut.robotex.robot.sensors.Camera;
+
+// the step work of single robot parts, measured on the yellow Ramses in a running match
+// without stepping the physics in between
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComponentBenchmark {
+	@State(Scope.Thread)
+	public static class Components {
+		public Ramses ramses;
+		public Camera camera;
+		public Dribbler dribbler;
+		public Coilgun coilgun;
+		public Drivetrain drivetrain;
+		public RobotController controller;
+		public float dt;
+
+		@Setup(Level.Trial)
+		public void setup(MatchState match) {
+			ramses = (Ramses)match.simulation.getYellowRobot();
+			camera = ramses.getCamera();
+			dribbler = ramses.getDribbler();
+			coilgun = ramses.getCoilGun();
+			drivetrain = ramses.getDrivetrain();
+			controller = match.simulation.getRobotControllers().get(0);
+			dt = match.simulation.getTimeStep();
+		}
+	}
+
+	@Benchmark
+	public void camera(Components components) {
+		components.camera.stepBeforePhysics(components.dt);
+	}
+
+	@Benchmark
+	public void dribbler(Components components) {
+		components.dribbler.stepBeforePhysics(components.dt);
+	}
+
+	@Benchmark
+	public void coilgun(Components components) {
+		components.coilgun.stepBeforePhysics(components.dt);
+	}
+
+	// all four wheels of the robot at once
+	@Benchmark
+	public void drivetrain(Components components) {
+		components.drivetrain.stepBeforePhysics(components.dt);
+	}
+
+	// the robot itself including all of its components
+	@Benchmark
+	public void robot(Components components) {
+		components.ramses.stepBeforePhysics(components.dt);
+	}
+
+	@Benchmark
+	public void controller(Components components) {
+		components.controller.stepBeforePhysics(components.dt);
+	}
+}
@@ -0,0 +1,48 @@
+package ee.ut.robotex.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ee.ut.robotex.headless.HeadlessRunner;
+import ee.ut.robotex.headless.MatchConfig;
+import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.simulation.Snapshot;
+
+// a match with two robots and all the balls, played for a moment so the robots are moving
+// and seeing balls, every iteration starts again from the same snapshot
+@State(Scope.Thread)
+public class MatchState {
+	public static final long SEED = 1;
+	public static final int WARMUP_STEPS = 120;
+
+	public Simulation simulation;
+	private Snapshot snapshot;
+
+	// lets subclasses change the robots and controllers, the default is Ramses against
+	// Ramses both driven by the AI
+	protected void configure(MatchConfig config) {
+
+	}
+
+	@Setup(Level.Trial)
+	public void setupMatch() {
+		MatchConfig config = new MatchConfig();
+
+		configure(config);
+
+		simulation = new HeadlessRunner(config).createSimulation(SEED);
+
+		for (int i = 0; i < WARMUP_STEPS; i++) {
+			simulation.step();
+		}
+
+		snapshot = simulation.snapshot();
+	}
+
+	@Setup(Level.Iteration)
+	public void restoreMatch() {
+		simulation.restore(snapshot);
+	}
+}
@@ -0,0 +1,154 @@
+package ee.ut.robotex.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ee.ut.robotex.renderer.Polygon2D;
+import ee.ut.robotex.util.ConvexPolygon;
+import ee.ut.robotex.util.RandomSource;
+
+// point tests against a camera view triangle and a dribbler rectangle, with the general
+// Polygon2D and with ConvexPolygon, the "all" variants report the cost per point
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Polygon2DBenchmark {
+	public static final int POINT_COUNT = 1024;
+
+	@State(Scope.Thread)
+	public static class Shapes {
+		public Polygon2D triangle;
+		public Polygon2D rectangle;
+		public ConvexPolygon convexTriangle;
+		public ConvexPolygon convexRectangle;
+		public boolean[] inside = new boolean[POINT_COUNT];
+		public float[] x = new float[POINT_COUNT];
+		public float[] y = new float[POINT_COUNT];
+		public int index = 0;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			triangle = new Polygon2D();
+			triangle.addPoint(1.0f, 1.5f);
+			triangle.addPoint(4.0f, 0.0f);
+			triangle.addPoint(4.0f, 3.0f);
+
+			rectangle = new Polygon2D();
+			rectangle.addPoint(1.0f, 1.0f);
+			rectangle.addPoint(1.18f, 1.0f);
+			rectangle.addPoint(1.18f, 1.04f);
+			rectangle.addPoint(1.0f, 1.04f);
+
+			convexTriangle = toConvex(triangle);
+			convexRectangle = toConvex(rectangle);
+
+			RandomSource random = new RandomSource(MatchState.SEED);
+
+			for (int i = 0; i < POINT_COUNT; i++) {
+				x[i] = random.nextFloat() * 4.5f;
+				y[i] = random.nextFloat() * 3.0f;
+			}
+		}
+
+		private static ConvexPolygon toConvex(Polygon2D polygon) {
+			ConvexPolygon convex = new ConvexPolygon(polygon.npoints);
+
+			for (int i = 0; i < polygon.npoints; i++) {
+				convex.setPoint(i, polygon.xpoints[i], polygon.ypoints[i]);
+			}
+
+			convex.update();
+
+			return convex;
+		}
+
+		public int next() {
+			index = (index + 1) & (POINT_COUNT - 1);
+
+			return index;
+		}
+	}
+
+	@Benchmark
+	public boolean triangleContains(Shapes shapes) {
+		int i = shapes.next();
+
+		return shapes.triangle.contains(shapes.x[i], shapes.y[i]);
+	}
+
+	@Benchmark
+	public boolean convexTriangleContains(Shapes shapes) {
+		int i = shapes.next();
+
+		return shapes.convexTriangle.contains(shapes.x[i], shapes.y[i]);
+	}
+
+	@Benchmark
+	public boolean rectangleContains(Shapes shapes) {
+		int i = shapes.next();
+
+		return shapes.rectangle.contains(shapes.x[i], shapes.y[i]);
+	}
+
+	// tests a whole field worth of balls, as a sensor does every step
+	@Benchmark
+	public void triangleContainsBalls(Shapes shapes, Blackhole blackhole) {
+		for (int i = 0; i < 11; i++) {
+			int index = shapes.next();
+
+			blackhole.consume(shapes.triangle.contains(shapes.x[index], shapes.y[index]));
+		}
+	}
+
+	@Benchmark
+	public boolean convexRectangleContains(Shapes shapes) {
+		int i = shapes.next();
+
+		return shapes.convexRectangle.contains(shapes.x[i], shapes.y[i]);
+	}
+
+	@Benchmark
+	public void convexTriangleContainsBalls(Shapes shapes, Blackhole blackhole) {
+		for (int i = 0; i < 11; i++) {
+			int index = shapes.next();
+
+			blackhole.consume(shapes.convexTriangle.contains(shapes.x[index], shapes.y[index]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINT_COUNT)
+	public int triangleContainsAll(Shapes shapes) {
+		int found = 0;
+
+		for (int i = 0; i < POINT_COUNT; i++) {
+			if (shapes.triangle.contains(shapes.x[i], shapes.y[i])) {
+				found++;
+			}
+		}
+
+		return found;
+	}
+
+	// tests all the points with the batch test
+	@Benchmark
+	@OperationsPerInvocation(POINT_COUNT)
+	public int convexTriangleContainsAll(Shapes shapes) {
+		return shapes.convexTriangle.contains(shapes.x, shapes.y, POINT_COUNT, shapes.inside);
+	}
+}
@@ -0,0 +1,62 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ut.robotex.benchmark.MatchState;
+
+// painting a whole frame of a running match into an offscreen image, the same way the
+// render panel does it, lives in the renderer package to reach paint()
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RendererBenchmark {
+	public static final int WIDTH = 800;
+	public static final int HEIGHT = 800;
+
+	@State(Scope.Thread)
+	public static class Offscreen {
+		public Renderer renderer;
+		public BufferedImage image;
+
+		@Setup(Level.Trial)
+		public void setup(MatchState match) {
+			if (match.simulation.getFrameExchange() == null) {
+				match.simulation.enableFrameExchange();
+			}
+
+			renderer = new Renderer(match.simulation);
+			image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		}
+	}
+
+	@Benchmark
+	public BufferedImage paint(Offscreen offscreen) {
+		Graphics2D g = offscreen.image.createGraphics();
+
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+		offscreen.renderer.paint(g, WIDTH, HEIGHT);
+
+		g.dispose();
+
+		return offscreen.image;
+	}
+}
@@ -1,12 +1,24 @@
 package ee.ut.robotex;
 
+import java.io.File;
+import java.io.IOException;
+
 import ee.ut.robotex.gui.Gui;
+import ee.ut.robotex.recording.RecordingReader;
+import ee.ut.robotex.recording.ReplayPlayer;
 import ee.ut.robotex.renderer.Renderer;
 import ee.ut.robotex.simulation.Simulation;
 
 public class Main {
-	public static void main(String args[]) {
-		new Main();
+	public static void main(String args[]) throws IOException {
+		if (args.length > 0) {
+			// play back a recorded match
+			ReplayPlayer replayPlayer = new ReplayPlayer(new RecordingReader(new File(args[0])));
+			
+			new Gui(new Renderer(replayPlayer), replayPlayer);
+		} else {
+			new Main();
+		}
 	}
 	
 	Main() {
@@ -2,45 +2,81 @@ package ee.ut.robotex.gui;
 
 import java.awt.BorderLayout;
 import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 
 import javax.swing.BorderFactory;
+import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
-import ee.ut.robotex.renderer.RenderPanel;
+import ee.ut.robotex.recording.ReplayPlayer;
+import ee.ut.robotex.renderer.RenderSurface;
+import ee.ut.robotex.renderer.RenderSurfaceFactory;
 import ee.ut.robotex.renderer.Renderer;
 import ee.ut.robotex.robot.ramses.Ramses;
 import ee.ut.robotex.robot.ramses.RamsesAI;
 import ee.ut.robotex.robot.ramses.RamsesManualController;
+import ee.ut.robotex.simulation.MatchEvent;
+import ee.ut.robotex.simulation.MatchEventListener;
 import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.simulation.SimulationClock;
+import ee.ut.robotex.simulation.SimulationMonitor;
 
 public class Gui extends JFrame implements ChangeListener {
 
 	private static final long serialVersionUID = -7886147914342084854L;
 	private Renderer renderer;
 	private Simulation simulation;
-	private RenderPanel renderPanel;
+	private RenderSurface renderSurface;
 	private JSlider timewarpSlider;
+	private JCheckBox unboundedCheckBox;
+	private ReplayPlayer replayPlayer;
+	private JSlider positionSlider;
+	private boolean updatingPosition = false;
 
 	public Gui(Renderer renderer, Simulation simulation) {
 		this.renderer = renderer;
 		this.simulation = simulation;
-		this.renderPanel = new RenderPanel(this.renderer, this.simulation);
+		this.renderSurface = RenderSurfaceFactory.create(this.renderer, this.simulation);
 		
 		setupLookAndFeel();
 		setupMainLayout();
 		setupBottomPanel();
 		setupRobots();
+		setupEventLog();
+		
+		// the renderer only draws the frames published by the simulation
+		simulation.enableFrameExchange();
+		
+		// watchable with JConsole or VisualVM
+		SimulationMonitor.register(simulation, "gui");
 		
 		setVisible(true);
 		
-		new Thread(renderPanel).start();
+		new Thread(renderSurface, "Renderer").start();
 		new Thread(simulation).start(); 
 	}
+	
+	// plays back a recorded match, the position slider scrubs through it
+	public Gui(Renderer renderer, ReplayPlayer replayPlayer) {
+		this.renderer = renderer;
+		this.replayPlayer = replayPlayer;
+		this.renderSurface = RenderSurfaceFactory.create(this.renderer, replayPlayer);
+		
+		setupLookAndFeel();
+		setupMainLayout();
+		setupReplayPanel();
+		
+		setVisible(true);
+		
+		new Thread(renderSurface, "Renderer").start();
+	}
 
 	private void setupRobots() {
 		// enable controlling ramses manually
@@ -65,6 +101,18 @@ public class Gui extends JFrame implements ChangeListener {
 		//simulation.addRobotController(ramsesComputerController2);
 	}
 
+	private void setupEventLog() {
+		// print goals to the console without slowing down the simulation thread
+		simulation.getEventBus().startDispatcher(new MatchEventListener() {
+			@Override
+			public void onEvent(MatchEvent event) {
+				if (event.getType() == MatchEvent.Type.GOAL) {
+					System.out.println("Ball #" + event.getSubject() + " entered " + event.getSide());
+				}
+			}
+		}, 100);
+	}
+
 	private void setupBottomPanel() {
 		JPanel bottomPanel = new JPanel();
 		//bottomPanel.setLayout(new GridLayout(0, 2));
@@ -81,6 +129,50 @@ public class Gui extends JFrame implements ChangeListener {
 	    timewarpSlider.setFocusable(false);
 	    bottomPanel.add(timewarpSlider);
 	    
+	    unboundedCheckBox = new JCheckBox("As fast as possible");
+	    unboundedCheckBox.addChangeListener(this);
+	    unboundedCheckBox.setFocusable(false);
+	    bottomPanel.add(unboundedCheckBox);
+	    
+	    add(bottomPanel, BorderLayout.SOUTH);
+	}
+
+	private void setupReplayPanel() {
+		JPanel bottomPanel = new JPanel();
+		bottomPanel.setLayout(new GridLayout(0, 1));
+		
+		timewarpSlider = new JSlider(JSlider.HORIZONTAL, 0, 1000, 100);
+	    timewarpSlider.setBorder(BorderFactory.createTitledBorder("Playback speed %"));
+	    timewarpSlider.setMajorTickSpacing(100);
+	    timewarpSlider.setMinorTickSpacing(25);
+	    timewarpSlider.setSnapToTicks(true);
+	    timewarpSlider.setPaintTicks(true);
+	    timewarpSlider.setPaintLabels(true);
+	    timewarpSlider.addChangeListener(this);
+	    timewarpSlider.setFocusable(false);
+	    bottomPanel.add(timewarpSlider);
+	    
+	    // position in tenths of a second
+	    positionSlider = new JSlider(JSlider.HORIZONTAL, 0, Math.round(replayPlayer.getDuration() * 10.0f), 0);
+	    positionSlider.setBorder(BorderFactory.createTitledBorder("Position"));
+	    positionSlider.addChangeListener(this);
+	    positionSlider.setFocusable(false);
+	    bottomPanel.add(positionSlider);
+	    
+	    // follow the playback unless the user is dragging the slider
+	    new Timer(100, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (positionSlider.getValueIsAdjusting()) {
+					return;
+				}
+				
+				updatingPosition = true;
+				positionSlider.setValue(Math.round(replayPlayer.getPosition() * 10.0f));
+				updatingPosition = false;
+			}
+	    }).start();
+	    
 	    add(bottomPanel, BorderLayout.SOUTH);
 	}
 
@@ -90,7 +182,7 @@ public class Gui extends JFrame implements ChangeListener {
 		
 	    setLayout(mainLayout);
 	    
-	    add(this.renderPanel, BorderLayout.CENTER);
+	    add(this.renderSurface.getComponent(), BorderLayout.CENTER);
 		
 		this.setSize(800, 800);
 
@@ -107,10 +199,24 @@ public class Gui extends JFrame implements ChangeListener {
 
 	@Override
 	public void stateChanged(ChangeEvent e) {
-		if (e.getSource() == timewarpSlider) {
-			int multiplier = timewarpSlider.getValue();
+		if (replayPlayer != null) {
+			if (e.getSource() == timewarpSlider) {
+				replayPlayer.setSpeed(timewarpSlider.getValue());
+			} else if (e.getSource() == positionSlider && !updatingPosition) {
+				replayPlayer.seek(positionSlider.getValue() / 10.0f);
+			}
 			
-			simulation.setTimewarp(multiplier);
+			return;
+		}
+		
+		if (e.getSource() == timewarpSlider || e.getSource() == unboundedCheckBox) {
+			if (unboundedCheckBox.isSelected()) {
+				simulation.setTimewarp(SimulationClock.UNBOUNDED);
+			} else {
+				int multiplier = timewarpSlider.getValue();
+				
+				simulation.setTimewarp(multiplier);
+			}
 		}
 	}
 }
@@ -0,0 +1,169 @@
+package ee.ut.robotex.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ee.ut.robotex.recording.MatchRecorder;
+import ee.ut.robotex.robot.Robot;
+import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.simulation.SimulationClock;
+import ee.ut.robotex.simulation.SimulationMonitor;
+
+// runs matches without any rendering or GUI, stepping the simulation as fast as the CPU
+// allows, useful for evaluating AI changes over many rounds
+public class HeadlessRunner {
+	private MatchConfig config;
+
+	public HeadlessRunner(MatchConfig config) {
+		this.config = config;
+	}
+
+	public MatchConfig getConfig() {
+		return config;
+	}
+
+	// builds a fresh simulation with the configured robots and controllers
+	public Simulation createSimulation(long seed) {
+		Simulation simulation = new Simulation(seed);
+
+		simulation.setBallRetirement(config.getBallRetirement());
+		simulation.setBallRespawnDelay(config.getBallRespawnDelay());
+
+		Robot yellowRobot = RobotFactory.createRobot(config.getYellowRobot(), simulation, Simulation.Side.YELLOW);
+		Robot blueRobot = RobotFactory.createRobot(config.getBlueRobot(), simulation, Simulation.Side.BLUE);
+
+		if (yellowRobot != null) {
+			simulation.setYellowRobot(yellowRobot);
+		}
+
+		if (blueRobot != null) {
+			simulation.setBlueRobot(blueRobot);
+		}
+
+		RobotController yellowController = RobotFactory.createController(config.getYellowController(), yellowRobot);
+		RobotController blueController = RobotFactory.createController(config.getBlueController(), blueRobot);
+
+		if (yellowController != null) {
+			simulation.addRobotController(yellowController);
+		}
+
+		if (blueController != null) {
+			simulation.addRobotController(blueController);
+		}
+
+		return simulation;
+	}
+
+	// runs a single match of the configured duration and saves it as "match-N.rec" when a
+	// record directory is set, matches share no state so this may be called from several
+	// threads at once
+	public MatchResult runMatch(int index) throws IOException {
+		Simulation simulation = createSimulation(config.getMatchSeed(index));
+		MatchRecorder recorder = null;
+		SimulationMonitor monitor = null;
+
+		if (config.isProfiling()) {
+			simulation.setProfilingEnabled(true);
+		}
+
+		if (config.getRecordDirectory() != null) {
+			File directory = new File(config.getRecordDirectory());
+
+			directory.mkdirs();
+
+			recorder = new MatchRecorder(simulation, new File(directory, "match-" + index + ".rec"));
+			simulation.addStepListener(recorder);
+		}
+
+		if (config.isMonitoring()) {
+			monitor = SimulationMonitor.register(simulation, "match-" + index);
+		}
+
+		int steps = (int)Math.ceil(config.getMatchDuration() / simulation.getTimeStep());
+		long startTime = System.nanoTime();
+
+		try {
+			if (monitor != null) {
+				// stepping through the clock lets the MBean pause and slow down the match
+				simulation.setTimewarp(SimulationClock.UNBOUNDED);
+				simulation.run(steps);
+			} else {
+				for (int i = 0; i < steps; i++) {
+					simulation.step();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException("Match " + index + " was interrupted");
+		} finally {
+			if (monitor != null) {
+				monitor.unregister();
+			}
+
+			if (recorder != null) {
+				recorder.close();
+			}
+		}
+
+		long elapsedNanos = System.nanoTime() - startTime;
+
+		return new MatchResult(
+			index,
+			simulation.getYellowScore(),
+			simulation.getBlueScore(),
+			steps,
+			simulation.getDuration(),
+			elapsedNanos,
+			simulation.getStepMetrics().summarize(),
+			simulation.getProfiler() != null ? simulation.getProfiler().getSummary() : null
+		);
+	}
+
+	// runs all configured matches one after another
+	public List<MatchResult> runAll() throws IOException {
+		List<MatchResult> results = new ArrayList<MatchResult>();
+
+		for (int i = 0; i < config.getMatchCount(); i++) {
+			results.add(runMatch(i));
+		}
+
+		return results;
+	}
+
+	public static void main(String[] args) throws IOException {
+		// make sure nothing accidentally brings up a window
+		System.setProperty("java.awt.headless", "true");
+
+		HeadlessRunner runner = new HeadlessRunner(MatchConfig.fromArgs(args));
+
+		int yellowTotal = 0;
+		int blueTotal = 0;
+		long totalSteps = 0;
+		long totalNanos = 0;
+
+		for (MatchResult result : runner.runAll()) {
+			System.out.println(result);
+
+			if (result.getProfileSummary() != null) {
+				System.out.println(result.getProfileSummary());
+			}
+
+			yellowTotal += result.getYellowScore();
+			blueTotal += result.getBlueScore();
+			totalSteps += result.getSteps();
+			totalNanos += result.getElapsedNanos();
+		}
+
+		System.out.println(String.format(
+			"Total: yellow %d - %d blue, %.0f steps/s",
+			yellowTotal,
+			blueTotal,
+			totalNanos == 0 ? 0.0 : totalSteps / (totalNanos / 1000000000.0)
+		));
+	}
+}
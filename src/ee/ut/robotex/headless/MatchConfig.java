@@ -0,0 +1,201 @@
+package ee.ut.robotex.headless;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+import ee.ut.robotex.simulation.BallRetirement;
+
+// describes a batch of headless matches: how many to run, how long each lasts and which
+// robots and controllers take part, e.g. "matches=100 duration=120 yellow=ramses
+// yellowController=ai"
+public class MatchConfig {
+	private int matchCount = 1;
+	private float matchDuration = 60.0f;
+	private String yellowRobot = "ramses";
+	private String blueRobot = "ramses";
+	private String yellowController = "ai";
+	private String blueController = "ai";
+	private long seed = 0;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private String recordDirectory = null;
+	private boolean profiling = false;
+	private boolean monitoring = false;
+	private BallRetirement ballRetirement = BallRetirement.KEEP;
+	private float ballRespawnDelay = 3.0f;
+
+	public MatchConfig() {
+
+	}
+
+	public MatchConfig(Properties properties) {
+		matchCount = Integer.parseInt(properties.getProperty("matches", Integer.toString(matchCount)));
+		matchDuration = Float.parseFloat(properties.getProperty("duration", Float.toString(matchDuration)));
+		yellowRobot = properties.getProperty("yellow", yellowRobot);
+		blueRobot = properties.getProperty("blue", blueRobot);
+		yellowController = properties.getProperty("yellowController", yellowController);
+		blueController = properties.getProperty("blueController", blueController);
+		seed = Long.parseLong(properties.getProperty("seed", Long.toString(seed)));
+		threads = Integer.parseInt(properties.getProperty("threads", Integer.toString(threads)));
+		recordDirectory = properties.getProperty("record", recordDirectory);
+		profiling = Boolean.parseBoolean(properties.getProperty("profile", Boolean.toString(profiling)));
+		monitoring = Boolean.parseBoolean(properties.getProperty("jmx", Boolean.toString(monitoring)));
+		ballRetirement = BallRetirement.valueOf(properties.getProperty("retirement", ballRetirement.name()).toUpperCase(Locale.ROOT));
+		ballRespawnDelay = Float.parseFloat(properties.getProperty("respawnDelay", Float.toString(ballRespawnDelay)));
+	}
+
+	// parses command line arguments, "config=file.properties" loads the given file first
+	// and any other "key=value" pairs override its values
+	public static MatchConfig fromArgs(String[] args) throws IOException {
+		return new MatchConfig(parseArgs(args));
+	}
+
+	// returns the "key=value" arguments as properties, loading a "config=" file first
+	public static Properties parseArgs(String[] args) throws IOException {
+		Properties properties = new Properties();
+
+		for (String arg : args) {
+			if (arg.startsWith("config=")) {
+				InputStream in = new FileInputStream(arg.substring("config=".length()));
+
+				try {
+					properties.load(in);
+				} finally {
+					in.close();
+				}
+			}
+		}
+
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+
+			if (separator == -1) {
+				throw new IllegalArgumentException("Expected key=value but got: " + arg);
+			}
+
+			properties.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+
+		return properties;
+	}
+
+	public int getMatchCount() {
+		return matchCount;
+	}
+
+	public void setMatchCount(int matchCount) {
+		this.matchCount = matchCount;
+	}
+
+	public float getMatchDuration() {
+		return matchDuration;
+	}
+
+	public void setMatchDuration(float matchDuration) {
+		this.matchDuration = matchDuration;
+	}
+
+	public String getYellowRobot() {
+		return yellowRobot;
+	}
+
+	public void setYellowRobot(String yellowRobot) {
+		this.yellowRobot = yellowRobot;
+	}
+
+	public String getBlueRobot() {
+		return blueRobot;
+	}
+
+	public void setBlueRobot(String blueRobot) {
+		this.blueRobot = blueRobot;
+	}
+
+	public String getYellowController() {
+		return yellowController;
+	}
+
+	public void setYellowController(String yellowController) {
+		this.yellowController = yellowController;
+	}
+
+	public String getBlueController() {
+		return blueController;
+	}
+
+	public void setBlueController(String blueController) {
+		this.blueController = blueController;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	// returns the seed of the match at given index so every match is reproducible on its
+	// own no matter in which order or on which thread it is run
+	public long getMatchSeed(int index) {
+		return seed + index;
+	}
+
+	// number of worker threads used by MatchFarm
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	// directory to write match recordings into, null if matches are not recorded
+	public String getRecordDirectory() {
+		return recordDirectory;
+	}
+
+	public void setRecordDirectory(String recordDirectory) {
+		this.recordDirectory = recordDirectory;
+	}
+
+	// whether to profile the steps and print a summary after every match
+	public boolean isProfiling() {
+		return profiling;
+	}
+
+	public void setProfiling(boolean profiling) {
+		this.profiling = profiling;
+	}
+
+	// whether every running match is published as an MBean, see
+	// ee.ut.robotex.simulation.SimulationMonitor, monitored matches step through the clock so
+	// they can be paused and slowed down
+	public boolean isMonitoring() {
+		return monitoring;
+	}
+
+	public void setMonitoring(boolean monitoring) {
+		this.monitoring = monitoring;
+	}
+
+	// what happens to scored balls, "retirement=keep", "freeze" or "respawn"
+	public BallRetirement getBallRetirement() {
+		return ballRetirement;
+	}
+
+	public void setBallRetirement(BallRetirement ballRetirement) {
+		this.ballRetirement = ballRetirement;
+	}
+
+	// simulated seconds before a retired ball is put back with "retirement=respawn"
+	public float getBallRespawnDelay() {
+		return ballRespawnDelay;
+	}
+
+	public void setBallRespawnDelay(float ballRespawnDelay) {
+		this.ballRespawnDelay = ballRespawnDelay;
+	}
+}
@@ -0,0 +1,63 @@
+package ee.ut.robotex.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import ee.ut.robotex.recording.RecordingReader;
+import ee.ut.robotex.renderer.FrameExporter;
+import ee.ut.robotex.simulation.Simulation;
+
+// command line for FrameExporter, exports a recording with "recording=match.rec" or
+// simulates a new match configured like HeadlessRunner otherwise, other keys: "out" for the
+// directory, "width", "height", "fps", "threads", "start" and "duration"
+public class MatchExporter {
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+
+		Properties properties = MatchConfig.parseArgs(args);
+
+		FrameExporter exporter = new FrameExporter(
+			new File(properties.getProperty("out", "frames")),
+			Integer.parseInt(properties.getProperty("width", "1280")),
+			Integer.parseInt(properties.getProperty("height", "960")),
+			Float.parseFloat(properties.getProperty("fps", "30")),
+			Integer.parseInt(properties.getProperty("threads", Integer.toString(Runtime.getRuntime().availableProcessors())))
+		);
+		float start = Float.parseFloat(properties.getProperty("start", "0"));
+		float duration = Float.parseFloat(properties.getProperty("duration", "60"));
+		long startTime = System.nanoTime();
+		int frames;
+
+		if (properties.getProperty("recording") != null) {
+			RecordingReader reader = new RecordingReader(new File(properties.getProperty("recording")));
+
+			try {
+				frames = exporter.export(reader, start, duration);
+			} finally {
+				reader.close();
+			}
+		} else {
+			MatchConfig config = new MatchConfig(properties);
+			Simulation simulation = new HeadlessRunner(config).createSimulation(config.getSeed());
+
+			// run up to the start without drawing anything
+			while (simulation.getDuration() < start) {
+				simulation.step();
+			}
+
+			frames = exporter.export(simulation, duration);
+		}
+
+		double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+
+		System.out.println(String.format(
+			"Exported %d frames to %s in %.2fs, %.1f frames/s, %.1fx real time",
+			frames,
+			exporter.getDirectory(),
+			seconds,
+			frames / seconds,
+			frames / exporter.getFps() / seconds
+		));
+	}
+}
@@ -0,0 +1,149 @@
+package ee.ut.robotex.headless;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// runs many independent headless matches concurrently on a work-stealing pool, every match
+// has its own seed so the results don't depend on the number of threads
+public class MatchFarm {
+	private HeadlessRunner runner;
+	private int threads;
+
+	public MatchFarm(MatchConfig config) {
+		this(config, config.getThreads());
+	}
+
+	public MatchFarm(MatchConfig config, int threads) {
+		this.runner = new HeadlessRunner(config);
+		this.threads = threads;
+	}
+
+	// runs all configured matches, the results are ordered by match index
+	public FarmResult run() throws InterruptedException {
+		int matchCount = runner.getConfig().getMatchCount();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		List<Future<MatchResult>> futures = new ArrayList<Future<MatchResult>>(matchCount);
+		List<MatchResult> results = new ArrayList<MatchResult>(matchCount);
+
+		long startTime = System.nanoTime();
+
+		try {
+			for (int i = 0; i < matchCount; i++) {
+				final int index = i;
+
+				futures.add(pool.submit(new Callable<MatchResult>() {
+					@Override
+					public MatchResult call() throws IOException {
+						return runner.runMatch(index);
+					}
+				}));
+			}
+
+			for (Future<MatchResult> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Match failed", e.getCause());
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		return new FarmResult(results, threads, System.nanoTime() - startTime);
+	}
+
+	// aggregated outcome of a farm run
+	public static class FarmResult {
+		private List<MatchResult> results;
+		private int threads;
+		private long elapsedNanos;
+
+		public FarmResult(List<MatchResult> results, int threads, long elapsedNanos) {
+			this.results = results;
+			this.threads = threads;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public List<MatchResult> getResults() {
+			return results;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public double getMatchesPerSecond() {
+			return results.size() / (elapsedNanos / 1000000000.0);
+		}
+
+		public double getStepsPerSecond() {
+			long steps = 0;
+
+			for (MatchResult result : results) {
+				steps += result.getSteps();
+			}
+
+			return steps / (elapsedNanos / 1000000000.0);
+		}
+
+		public int getYellowTotal() {
+			int total = 0;
+
+			for (MatchResult result : results) {
+				total += result.getYellowScore();
+			}
+
+			return total;
+		}
+
+		public int getBlueTotal() {
+			int total = 0;
+
+			for (MatchResult result : results) {
+				total += result.getBlueScore();
+			}
+
+			return total;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+				"%d matches on %d threads in %.3fs: yellow %d - %d blue, %.2f matches/s, %.0f steps/s",
+				results.size(),
+				threads,
+				elapsedNanos / 1000000000.0,
+				getYellowTotal(),
+				getBlueTotal(),
+				getMatchesPerSecond(),
+				getStepsPerSecond()
+			);
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+
+		FarmResult result = new MatchFarm(MatchConfig.fromArgs(args)).run();
+
+		for (MatchResult match : result.getResults()) {
+			System.out.println(match);
+
+			if (match.getProfileSummary() != null) {
+				System.out.println(match.getProfileSummary());
+			}
+		}
+
+		System.out.println(result);
+	}
+}
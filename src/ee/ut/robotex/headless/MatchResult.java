@@ -0,0 +1,86 @@
+package ee.ut.robotex.headless;
+
+import ee.ut.robotex.util.RollingMetrics;
+
+// outcome of a single headless match
+public class MatchResult {
+	private int index;
+	private int yellowScore;
+	private int blueScore;
+	private int steps;
+	private float duration;
+	private long elapsedNanos;
+	private RollingMetrics.Summary stepMetrics;
+	private String profileSummary;
+
+	public MatchResult(int index, int yellowScore, int blueScore, int steps, float duration, long elapsedNanos, RollingMetrics.Summary stepMetrics, String profileSummary) {
+		this.index = index;
+		this.yellowScore = yellowScore;
+		this.blueScore = blueScore;
+		this.steps = steps;
+		this.duration = duration;
+		this.elapsedNanos = elapsedNanos;
+		this.stepMetrics = stepMetrics;
+		this.profileSummary = profileSummary;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public int getYellowScore() {
+		return yellowScore;
+	}
+
+	public int getBlueScore() {
+		return blueScore;
+	}
+
+	public int getSteps() {
+		return steps;
+	}
+
+	// simulated duration in seconds
+	public float getDuration() {
+		return duration;
+	}
+
+	// wall clock time the match took to simulate
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	// returns the step metrics of the end of the match, the same numbers the GUI overlay
+	// shows
+	public RollingMetrics.Summary getStepMetrics() {
+		return stepMetrics;
+	}
+
+	// returns the step profiler summary of the match, null when profiling was off
+	public String getProfileSummary() {
+		return profileSummary;
+	}
+
+	public double getStepsPerSecond() {
+		if (elapsedNanos == 0) {
+			return 0.0;
+		}
+
+		return steps / (elapsedNanos / 1000000000.0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+			"Match #%d: yellow %d - %d blue, %d steps (%.1fs) in %.3fs, %.0f steps/s, recent steps %s",
+			index,
+			yellowScore,
+			blueScore,
+			steps,
+			duration,
+			elapsedNanos / 1000000000.0,
+			getStepsPerSecond(),
+			stepMetrics
+		);
+	}
+}
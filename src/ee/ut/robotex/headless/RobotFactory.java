@@ -0,0 +1,39 @@
+package ee.ut.robotex.headless;
+
+import ee.ut.robotex.robot.Robot;
+import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.robot.ramses.Ramses;
+import ee.ut.robotex.robot.ramses.RamsesAI;
+import ee.ut.robotex.simulation.Simulation;
+
+// creates robots and controllers by the names used in MatchConfig
+public class RobotFactory {
+
+	// returns null for "none" so a side can be left empty
+	public static Robot createRobot(String type, Simulation simulation, Simulation.Side side) {
+		if (type.equals("none")) {
+			return null;
+		} else if (type.equals("ramses")) {
+			return new Ramses(simulation.getWorld(), simulation, side);
+		} else if (type.equals("telliskivi")) {
+			return new ee.ut.robotex.robot.telliskivi.Robot(simulation.getWorld(), simulation, side);
+		}
+
+		throw new IllegalArgumentException("Unknown robot type: " + type);
+	}
+
+	// returns null for "none", the robot is then left standing still
+	public static RobotController createController(String type, Robot robot) {
+		if (type.equals("none") || robot == null) {
+			return null;
+		} else if (type.equals("ai")) {
+			if (!(robot instanceof Ramses)) {
+				throw new IllegalArgumentException("The AI controller can only drive Ramses, not " + robot.getName());
+			}
+
+			return new RamsesAI((Ramses)robot);
+		}
+
+		throw new IllegalArgumentException("Unknown controller type: " + type);
+	}
+}
@@ -0,0 +1,311 @@
+package ee.ut.robotex.recording;
+
+import ee.ut.robotex.simulation.FrameState;
+
+// encodes frames as quantized deltas against the previous frame of the same segment:
+// positions in tenths of millimetres, angles in 1/10000 radians and wheel powers in
+// percent, a keyframe is a frame encoded against an all-zero state
+class FrameCodec {
+	public static final int SEGMENT_MARKER = 'S';
+	public static final int END_MARKER = 'E';
+
+	private static final float POSITION_SCALE = 10000.0f;
+	private static final float ANGLE_SCALE = 10000.0f;
+	private static final float POWER_SCALE = 100.0f;
+
+	private static final int FLAG_KEYFRAME = 1;
+	private static final int FLAG_ACTIVITY = 2;
+	private static final int FLAG_SCORES = 4;
+	private static final int FLAG_WHEELS = 8;
+	private static final int FLAG_EVENTS = 16;
+
+	private int ballCount;
+	private int maskBytes;
+	private boolean[] robotPresent = new boolean[2];
+	private int[] ballX;
+	private int[] ballY;
+	private boolean[] ballActive;
+	private int[] movedMask;
+	private int[] robotX = new int[2];
+	private int[] robotY = new int[2];
+	private int[] robotAngle = new int[2];
+	private int[][] wheelPowers = new int[2][];
+	private int yellowScore;
+	private int blueScore;
+
+	public FrameCodec(RecordingHeader header) {
+		ballCount = header.getBallCount();
+		maskBytes = (ballCount + 7) / 8;
+		ballX = new int[ballCount];
+		ballY = new int[ballCount];
+		ballActive = new boolean[ballCount];
+		movedMask = new int[maskBytes];
+
+		for (int i = 0; i < 2; i++) {
+			robotPresent[i] = header.getRobot(i) != null;
+			wheelPowers[i] = new int[header.getWheelCount(i)];
+		}
+	}
+
+	// forgets the previous frame, the next frame is encoded or decoded as a keyframe
+	public void reset() {
+		for (int i = 0; i < ballCount; i++) {
+			ballX[i] = 0;
+			ballY[i] = 0;
+			ballActive[i] = false;
+		}
+
+		for (int i = 0; i < 2; i++) {
+			robotX[i] = 0;
+			robotY[i] = 0;
+			robotAngle[i] = 0;
+
+			for (int j = 0; j < wheelPowers[i].length; j++) {
+				wheelPowers[i][j] = 0;
+			}
+		}
+
+		yellowScore = 0;
+		blueScore = 0;
+	}
+
+	public void encode(FrameState frame, boolean keyframe, RecordedEvents events, VarIntBuffer out) {
+		if (keyframe) {
+			reset();
+		}
+
+		boolean activityChanged = keyframe;
+		boolean wheelsChanged = keyframe;
+		boolean scoresChanged = keyframe || frame.yellowScore != yellowScore || frame.blueScore != blueScore;
+
+		for (int i = 0; i < ballCount && !activityChanged; i++) {
+			activityChanged = frame.ballActive[i] != ballActive[i];
+		}
+
+		for (int i = 0; i < 2 && !wheelsChanged; i++) {
+			for (int j = 0; j < wheelPowers[i].length && !wheelsChanged; j++) {
+				wheelsChanged = quantize(frame.wheelPowers[i][j], POWER_SCALE) != wheelPowers[i][j];
+			}
+		}
+
+		int flags = (keyframe ? FLAG_KEYFRAME : 0)
+			| (activityChanged ? FLAG_ACTIVITY : 0)
+			| (scoresChanged ? FLAG_SCORES : 0)
+			| (wheelsChanged ? FLAG_WHEELS : 0)
+			| (events.size() > 0 ? FLAG_EVENTS : 0);
+
+		out.writeByte(flags);
+
+		// mask of moved balls followed by their deltas
+		for (int b = 0; b < maskBytes; b++) {
+			int mask = 0;
+
+			for (int bit = 0; bit < 8 && b * 8 + bit < ballCount; bit++) {
+				int i = b * 8 + bit;
+
+				if (keyframe || quantize(frame.ballX[i], POSITION_SCALE) != ballX[i] || quantize(frame.ballY[i], POSITION_SCALE) != ballY[i]) {
+					mask |= 1 << bit;
+				}
+			}
+
+			out.writeByte(mask);
+		}
+
+		for (int i = 0; i < ballCount; i++) {
+			int x = quantize(frame.ballX[i], POSITION_SCALE);
+			int y = quantize(frame.ballY[i], POSITION_SCALE);
+
+			if (keyframe || x != ballX[i] || y != ballY[i]) {
+				out.writeSignedVarInt(x - ballX[i]);
+				out.writeSignedVarInt(y - ballY[i]);
+
+				ballX[i] = x;
+				ballY[i] = y;
+			}
+		}
+
+		// robots
+		int robotMask = 0;
+
+		for (int i = 0; i < 2; i++) {
+			if (robotPresent[i] && (keyframe
+				|| quantize(frame.robotX[i], POSITION_SCALE) != robotX[i]
+				|| quantize(frame.robotY[i], POSITION_SCALE) != robotY[i]
+				|| quantize(normalizeAngle(frame.robotAngle[i]), ANGLE_SCALE) != robotAngle[i])) {
+				robotMask |= 1 << i;
+			}
+		}
+
+		out.writeByte(robotMask);
+
+		for (int i = 0; i < 2; i++) {
+			if ((robotMask & (1 << i)) == 0) {
+				continue;
+			}
+
+			int x = quantize(frame.robotX[i], POSITION_SCALE);
+			int y = quantize(frame.robotY[i], POSITION_SCALE);
+			int angle = quantize(normalizeAngle(frame.robotAngle[i]), ANGLE_SCALE);
+
+			out.writeSignedVarInt(x - robotX[i]);
+			out.writeSignedVarInt(y - robotY[i]);
+			out.writeSignedVarInt(angle - robotAngle[i]);
+
+			robotX[i] = x;
+			robotY[i] = y;
+			robotAngle[i] = angle;
+		}
+
+		if (activityChanged) {
+			for (int b = 0; b < maskBytes; b++) {
+				int mask = 0;
+
+				for (int bit = 0; bit < 8 && b * 8 + bit < ballCount; bit++) {
+					int i = b * 8 + bit;
+
+					if (frame.ballActive[i]) {
+						mask |= 1 << bit;
+					}
+
+					ballActive[i] = frame.ballActive[i];
+				}
+
+				out.writeByte(mask);
+			}
+		}
+
+		if (scoresChanged) {
+			out.writeVarInt(frame.yellowScore);
+			out.writeVarInt(frame.blueScore);
+
+			yellowScore = frame.yellowScore;
+			blueScore = frame.blueScore;
+		}
+
+		if (wheelsChanged) {
+			for (int i = 0; i < 2; i++) {
+				for (int j = 0; j < wheelPowers[i].length; j++) {
+					int power = quantize(frame.wheelPowers[i][j], POWER_SCALE);
+
+					out.writeSignedVarInt(power - wheelPowers[i][j]);
+
+					wheelPowers[i][j] = power;
+				}
+			}
+		}
+
+		if (events.size() > 0) {
+			out.writeVarInt(events.size());
+
+			for (int i = 0; i < events.size(); i++) {
+				out.writeVarInt(events.getTypeOrdinal(i));
+				out.writeVarInt(events.getSideOrdinal(i) + 1);
+				out.writeSignedVarInt(events.getSubject(i));
+			}
+		}
+	}
+
+	// decodes the next frame, step and duration are left for the caller to fill
+	public void decode(VarIntBuffer in, FrameState frame, RecordedEvents events) {
+		int flags = in.readByte();
+
+		if ((flags & FLAG_KEYFRAME) != 0) {
+			reset();
+		}
+
+		// the deltas of moved balls follow after all the mask bytes
+		for (int b = 0; b < maskBytes; b++) {
+			movedMask[b] = in.readByte();
+		}
+
+		for (int i = 0; i < ballCount; i++) {
+			if ((movedMask[i / 8] & (1 << (i % 8))) != 0) {
+				ballX[i] += in.readSignedVarInt();
+				ballY[i] += in.readSignedVarInt();
+			}
+
+			frame.ballX[i] = ballX[i] / POSITION_SCALE;
+			frame.ballY[i] = ballY[i] / POSITION_SCALE;
+		}
+
+		int robotMask = in.readByte();
+
+		for (int i = 0; i < 2; i++) {
+			if ((robotMask & (1 << i)) != 0) {
+				robotX[i] += in.readSignedVarInt();
+				robotY[i] += in.readSignedVarInt();
+				robotAngle[i] += in.readSignedVarInt();
+			}
+
+			frame.robotPresent[i] = robotPresent[i];
+			frame.robotX[i] = robotX[i] / POSITION_SCALE;
+			frame.robotY[i] = robotY[i] / POSITION_SCALE;
+			frame.robotAngle[i] = robotAngle[i] / ANGLE_SCALE;
+		}
+
+		if ((flags & FLAG_ACTIVITY) != 0) {
+			for (int b = 0; b < maskBytes; b++) {
+				int mask = in.readByte();
+
+				for (int bit = 0; bit < 8 && b * 8 + bit < ballCount; bit++) {
+					ballActive[b * 8 + bit] = (mask & (1 << bit)) != 0;
+				}
+			}
+		}
+
+		System.arraycopy(ballActive, 0, frame.ballActive, 0, ballCount);
+
+		if ((flags & FLAG_SCORES) != 0) {
+			yellowScore = in.readVarInt();
+			blueScore = in.readVarInt();
+		}
+
+		frame.yellowScore = yellowScore;
+		frame.blueScore = blueScore;
+
+		if ((flags & FLAG_WHEELS) != 0) {
+			for (int i = 0; i < 2; i++) {
+				for (int j = 0; j < wheelPowers[i].length; j++) {
+					wheelPowers[i][j] += in.readSignedVarInt();
+				}
+			}
+		}
+
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < wheelPowers[i].length; j++) {
+				frame.wheelPowers[i][j] = wheelPowers[i][j] / POWER_SCALE;
+			}
+		}
+
+		events.clear();
+
+		if ((flags & FLAG_EVENTS) != 0) {
+			int count = in.readVarInt();
+
+			for (int i = 0; i < count; i++) {
+				int type = in.readVarInt();
+				int side = in.readVarInt() - 1;
+
+				events.add(type, side, in.readSignedVarInt());
+			}
+		}
+	}
+
+	private static int quantize(float value, float scale) {
+		return Math.round(value * scale);
+	}
+
+	private static float normalizeAngle(float angle) {
+		float twoPi = (float)(Math.PI * 2.0);
+
+		angle %= twoPi;
+
+		if (angle > Math.PI) {
+			angle -= twoPi;
+		} else if (angle <= -Math.PI) {
+			angle += twoPi;
+		}
+
+		return angle;
+	}
+}
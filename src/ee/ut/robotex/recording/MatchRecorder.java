@@ -0,0 +1,273 @@
+package ee.ut.robotex.recording;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.Deflater;
+
+import ee.ut.robotex.simulation.FrameState;
+import ee.ut.robotex.simulation.MatchEvent;
+import ee.ut.robotex.simulation.MatchEventBus;
+import ee.ut.robotex.simulation.MatchEventListener;
+import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.simulation.StepListener;
+
+// records every step of a match into a compact binary file on a writer thread, add it after
+// the robots and controllers are set up and close() it when the match is over
+public class MatchRecorder implements StepListener, MatchEventListener {
+	private static final int SEGMENT_LENGTH = 120;
+	private static final int BLOCK_POOL_SIZE = 4;
+
+	private Simulation simulation;
+	private RecordingHeader header;
+	private DataOutputStream out;
+	private BlockingQueue<FrameBlock> freeBlocks;
+	private BlockingQueue<FrameBlock> fullBlocks;
+	private FrameBlock currentBlock;
+	private final FrameBlock endBlock = new FrameBlock(0);
+	private WriterThread writerThread;
+	private volatile IOException error;
+	private long frameCount = 0;
+	private MatchEventBus.Subscription events;
+	private boolean closed = false;
+
+	private class FrameBlock {
+		private FrameState[] frames;
+		private int count = 0;
+		private int[] eventFrame = new int[16];
+		private int[] eventType = new int[16];
+		private int[] eventSide = new int[16];
+		private int[] eventSubject = new int[16];
+		private int eventCount = 0;
+
+		public FrameBlock(int length) {
+			frames = new FrameState[length];
+
+			for (int i = 0; i < length; i++) {
+				frames[i] = simulation.createFrameState();
+			}
+		}
+
+		public void addEvent(MatchEvent event) {
+			if (eventCount == eventType.length) {
+				eventFrame = grow(eventFrame);
+				eventType = grow(eventType);
+				eventSide = grow(eventSide);
+				eventSubject = grow(eventSubject);
+			}
+
+			eventFrame[eventCount] = count;
+			eventType[eventCount] = event.getType().ordinal();
+			eventSide[eventCount] = event.getSide() != null ? event.getSide().ordinal() : -1;
+			eventSubject[eventCount] = event.getSubject();
+			eventCount++;
+		}
+
+		private int[] grow(int[] array) {
+			int[] grown = new int[array.length * 2];
+			System.arraycopy(array, 0, grown, 0, array.length);
+
+			return grown;
+		}
+
+		public void clear() {
+			count = 0;
+			eventCount = 0;
+		}
+	}
+
+	private class WriterThread extends Thread {
+		private FrameCodec codec = new FrameCodec(header);
+		private VarIntBuffer raw = new VarIntBuffer(4096);
+		private RecordedEvents events = new RecordedEvents();
+		private Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		private byte[] compressed = new byte[4096];
+
+		public WriterThread() {
+			super("Match recorder");
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					FrameBlock block = fullBlocks.take();
+
+					if (block == endBlock) {
+						break;
+					}
+
+					if (error == null) {
+						try {
+							writeSegment(block);
+						} catch (IOException e) {
+							error = e;
+						}
+					}
+
+					block.clear();
+					freeBlocks.offer(block);
+				}
+			} catch (InterruptedException e) {
+				error = new IOException("Recorder was interrupted");
+			} finally {
+				deflater.end();
+			}
+		}
+
+		private void writeSegment(FrameBlock block) throws IOException {
+			raw.clear();
+
+			int eventIndex = 0;
+
+			for (int i = 0; i < block.count; i++) {
+				events.clear();
+
+				while (eventIndex < block.eventCount && block.eventFrame[eventIndex] == i) {
+					events.add(block.eventType[eventIndex], block.eventSide[eventIndex], block.eventSubject[eventIndex]);
+					eventIndex++;
+				}
+
+				codec.encode(block.frames[i], i == 0, events, raw);
+			}
+
+			deflater.reset();
+			deflater.setInput(raw.getData(), 0, raw.getLength());
+			deflater.finish();
+
+			int compressedLength = 0;
+
+			while (!deflater.finished()) {
+				if (compressedLength == compressed.length) {
+					byte[] grown = new byte[compressed.length * 2];
+					System.arraycopy(compressed, 0, grown, 0, compressedLength);
+					compressed = grown;
+				}
+
+				compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+			}
+
+			out.writeByte(FrameCodec.SEGMENT_MARKER);
+			out.writeLong(block.frames[0].step);
+			out.writeInt(block.count);
+			out.writeInt(raw.getLength());
+			out.writeInt(compressedLength);
+			out.write(compressed, 0, compressedLength);
+		}
+	}
+
+	public MatchRecorder(Simulation simulation, File file) throws IOException {
+		this(simulation, new FileOutputStream(file));
+	}
+
+	public MatchRecorder(Simulation simulation, OutputStream stream) throws IOException {
+		this.simulation = simulation;
+		this.header = new RecordingHeader(simulation);
+		this.out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+		this.freeBlocks = new ArrayBlockingQueue<FrameBlock>(BLOCK_POOL_SIZE);
+		this.fullBlocks = new LinkedBlockingQueue<FrameBlock>();
+
+		for (int i = 0; i < BLOCK_POOL_SIZE; i++) {
+			freeBlocks.offer(new FrameBlock(SEGMENT_LENGTH));
+		}
+
+		header.write(out);
+
+		events = simulation.getEventBus().subscribe();
+
+		writerThread = new WriterThread();
+		writerThread.start();
+	}
+
+	public RecordingHeader getHeader() {
+		return header;
+	}
+
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	@Override
+	public void stepBeforePhysics(float dt) {
+
+	}
+
+	@Override
+	public void stepAfterPhysics(float dt) {
+		if (closed) {
+			return;
+		}
+
+		if (currentBlock == null) {
+			currentBlock = freeBlocks.poll();
+
+			if (currentBlock == null) {
+				// writer is behind, rather allocate than make the simulation wait
+				currentBlock = new FrameBlock(SEGMENT_LENGTH);
+			}
+		}
+
+		FrameState frame = currentBlock.frames[currentBlock.count];
+
+		simulation.captureFrame(frame);
+
+		events.drain(this);
+
+		currentBlock.count++;
+		frameCount++;
+
+		if (currentBlock.count == currentBlock.frames.length) {
+			fullBlocks.offer(currentBlock);
+			currentBlock = null;
+		}
+	}
+
+	@Override
+	public void onEvent(MatchEvent event) {
+		currentBlock.addEvent(event);
+	}
+
+	// writes out the remaining frames and closes the file, call from the simulation thread
+	// or after the simulation has stopped
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		events.cancel();
+
+		if (currentBlock != null && currentBlock.count > 0) {
+			fullBlocks.offer(currentBlock);
+			currentBlock = null;
+		}
+
+		fullBlocks.offer(endBlock);
+
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new IOException("Interrupted while finishing the recording");
+		}
+
+		try {
+			if (error != null) {
+				throw error;
+			}
+
+			out.writeByte(FrameCodec.END_MARKER);
+			out.writeLong(frameCount);
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package ee.ut.robotex.recording;
+
+import ee.ut.robotex.simulation.MatchEvent;
+import ee.ut.robotex.simulation.Simulation;
+
+// reusable list of recorded match events of a single frame
+public class RecordedEvents {
+	private static final MatchEvent.Type[] TYPES = MatchEvent.Type.values();
+	private static final Simulation.Side[] SIDES = Simulation.Side.values();
+
+	private int count = 0;
+	private int[] types = new int[8];
+	private int[] sides = new int[8];
+	private int[] subjects = new int[8];
+
+	// adds an event, side is the ordinal of the side or -1 for none
+	public void add(int type, int side, int subject) {
+		if (count == types.length) {
+			types = grow(types);
+			sides = grow(sides);
+			subjects = grow(subjects);
+		}
+
+		types[count] = type;
+		sides[count] = side;
+		subjects[count] = subject;
+		count++;
+	}
+
+	private int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+
+		return grown;
+	}
+
+	public void clear() {
+		count = 0;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public MatchEvent.Type getType(int index) {
+		return TYPES[types[index]];
+	}
+
+	// returns the side the event concerns, null if none
+	public Simulation.Side getSide(int index) {
+		return sides[index] >= 0 ? SIDES[sides[index]] : null;
+	}
+
+	// returns the ball id, controller state or whatever the event type refers to
+	public int getSubject(int index) {
+		return subjects[index];
+	}
+
+	int getTypeOrdinal(int index) {
+		return types[index];
+	}
+
+	int getSideOrdinal(int index) {
+		return sides[index];
+	}
+}
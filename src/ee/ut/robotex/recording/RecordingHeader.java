@@ -0,0 +1,232 @@
+package ee.ut.robotex.recording;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import ee.ut.robotex.renderer.Polygon2D;
+import ee.ut.robotex.robot.Robot;
+import ee.ut.robotex.robot.components.Wheel;
+import ee.ut.robotex.simulation.FrameState;
+import ee.ut.robotex.simulation.Simulation;
+
+// static description of a recorded match: field geometry, ball count and the shape and
+// wheel layout of both robots, enough to draw the match without the simulation
+public class RecordingHeader {
+	public static final int MAGIC = 0x53535243; // "SSRC"
+	public static final int VERSION = 2;
+
+	private float timeStep;
+	private float fieldWidth;
+	private float fieldHeight;
+	private float goalWidth;
+	private float goalDepth;
+	private int ballCount;
+	private float ballRadius;
+	private RobotInfo[] robots = new RobotInfo[2];
+
+	// shape and wheel layout of a recorded robot
+	public static class RobotInfo {
+		public String name;
+		public Simulation.Side side;
+		public Polygon2D outline;
+		public float[] wheelX;
+		public float[] wheelY;
+		public float[] wheelAngle;
+		public float[] wheelRadius;
+		public float[] wheelDepth;
+
+		public int getWheelCount() {
+			return wheelX.length;
+		}
+	}
+
+	private RecordingHeader() {
+
+	}
+
+	public RecordingHeader(Simulation simulation) {
+		timeStep = simulation.getTimeStep();
+		fieldWidth = simulation.getFieldWidth();
+		fieldHeight = simulation.getFieldHeight();
+		goalWidth = simulation.getGoalWidth();
+		goalDepth = simulation.getGoalDepth();
+		ballCount = simulation.getBalls().size();
+		ballRadius = ballCount > 0 ? simulation.getBalls().get(0).getRadius() : 0.0f;
+		robots[FrameState.YELLOW] = createRobotInfo(simulation.getYellowRobot());
+		robots[FrameState.BLUE] = createRobotInfo(simulation.getBlueRobot());
+	}
+
+	private static RobotInfo createRobotInfo(Robot robot) {
+		if (robot == null) {
+			return null;
+		}
+
+		RobotInfo info = new RobotInfo();
+		List<Wheel> wheels = robot.getWheels();
+		int wheelCount = wheels.size();
+
+		info.name = robot.getName();
+		info.side = robot.getSide();
+		info.outline = robot.getOutline();
+		info.wheelX = new float[wheelCount];
+		info.wheelY = new float[wheelCount];
+		info.wheelAngle = new float[wheelCount];
+		info.wheelRadius = new float[wheelCount];
+		info.wheelDepth = new float[wheelCount];
+
+		for (int i = 0; i < wheelCount; i++) {
+			Wheel wheel = wheels.get(i);
+
+			info.wheelX[i] = wheel.getX();
+			info.wheelY[i] = wheel.getY();
+			info.wheelAngle[i] = wheel.getAngle();
+			info.wheelRadius[i] = wheel.getWheelRadius();
+			info.wheelDepth[i] = wheel.depth;
+		}
+
+		return info;
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeFloat(timeStep);
+		out.writeFloat(fieldWidth);
+		out.writeFloat(fieldHeight);
+		out.writeFloat(goalWidth);
+		out.writeFloat(goalDepth);
+		out.writeInt(ballCount);
+		out.writeFloat(ballRadius);
+
+		for (RobotInfo robot : robots) {
+			out.writeBoolean(robot != null);
+
+			if (robot == null) {
+				continue;
+			}
+
+			out.writeUTF(robot.name);
+			out.writeByte(robot.side.ordinal());
+			out.writeInt(robot.outline.npoints);
+
+			for (int i = 0; i < robot.outline.npoints; i++) {
+				out.writeFloat(robot.outline.xpoints[i]);
+				out.writeFloat(robot.outline.ypoints[i]);
+			}
+
+			out.writeInt(robot.getWheelCount());
+
+			for (int i = 0; i < robot.getWheelCount(); i++) {
+				out.writeFloat(robot.wheelX[i]);
+				out.writeFloat(robot.wheelY[i]);
+				out.writeFloat(robot.wheelAngle[i]);
+				out.writeFloat(robot.wheelRadius[i]);
+				out.writeFloat(robot.wheelDepth[i]);
+			}
+		}
+	}
+
+	public static RecordingHeader read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a match recording");
+		}
+
+		int version = in.readInt();
+
+		if (version != VERSION) {
+			throw new IOException("Unsupported recording version " + version);
+		}
+
+		RecordingHeader header = new RecordingHeader();
+
+		header.timeStep = in.readFloat();
+		header.fieldWidth = in.readFloat();
+		header.fieldHeight = in.readFloat();
+		header.goalWidth = in.readFloat();
+		header.goalDepth = in.readFloat();
+		header.ballCount = in.readInt();
+		header.ballRadius = in.readFloat();
+
+		for (int index = 0; index < 2; index++) {
+			if (!in.readBoolean()) {
+				continue;
+			}
+
+			RobotInfo robot = new RobotInfo();
+
+			robot.name = in.readUTF();
+			robot.side = Simulation.Side.values()[in.readByte()];
+			robot.outline = new Polygon2D();
+
+			int pointCount = in.readInt();
+
+			for (int i = 0; i < pointCount; i++) {
+				robot.outline.addPoint(in.readFloat(), in.readFloat());
+			}
+
+			int wheelCount = in.readInt();
+
+			robot.wheelX = new float[wheelCount];
+			robot.wheelY = new float[wheelCount];
+			robot.wheelAngle = new float[wheelCount];
+			robot.wheelRadius = new float[wheelCount];
+			robot.wheelDepth = new float[wheelCount];
+
+			for (int i = 0; i < wheelCount; i++) {
+				robot.wheelX[i] = in.readFloat();
+				robot.wheelY[i] = in.readFloat();
+				robot.wheelAngle[i] = in.readFloat();
+				robot.wheelRadius[i] = in.readFloat();
+				robot.wheelDepth[i] = in.readFloat();
+			}
+
+			header.robots[index] = robot;
+		}
+
+		return header;
+	}
+
+	// creates a frame state matching the recorded setup
+	public FrameState createFrameState() {
+		return new FrameState(ballCount, getWheelCount(FrameState.YELLOW), getWheelCount(FrameState.BLUE));
+	}
+
+	public int getWheelCount(int robotIndex) {
+		return robots[robotIndex] != null ? robots[robotIndex].getWheelCount() : 0;
+	}
+
+	public float getTimeStep() {
+		return timeStep;
+	}
+
+	public float getFieldWidth() {
+		return fieldWidth;
+	}
+
+	public float getFieldHeight() {
+		return fieldHeight;
+	}
+
+	public float getGoalWidth() {
+		return goalWidth;
+	}
+
+	public float getGoalDepth() {
+		return goalDepth;
+	}
+
+	public int getBallCount() {
+		return ballCount;
+	}
+
+	public float getBallRadius() {
+		return ballRadius;
+	}
+
+	// returns the robot at FrameState.YELLOW or FrameState.BLUE, null if there was none
+	public RobotInfo getRobot(int index) {
+		return robots[index];
+	}
+}
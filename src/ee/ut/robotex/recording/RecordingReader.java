@@ -0,0 +1,244 @@
+package ee.ut.robotex.recording;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import ee.ut.robotex.simulation.FrameState;
+
+// random access to the frames of a recording written by MatchRecorder, only the segment
+// being read is decompressed
+public class RecordingReader {
+	private RecordingHeader header;
+	private byte[] data;
+	private int segmentCount = 0;
+	private int[] segmentOffset = new int[64];
+	private int[] segmentCompressedLength = new int[64];
+	private int[] segmentRawLength = new int[64];
+	private long[] segmentFirstFrame = new long[64];
+	private long[] segmentFirstStep = new long[64];
+	private long frameCount = 0;
+	private FrameCodec codec;
+	private VarIntBuffer raw = new VarIntBuffer(4096);
+	private Inflater inflater = new Inflater();
+	private RecordedEvents events = new RecordedEvents();
+	private int loadedSegment = -1;
+	private int decodedIndex = -1;
+	private FrameState decoded;
+
+	public RecordingReader(File file) throws IOException {
+		this(new FileInputStream(file));
+	}
+
+	public RecordingReader(InputStream stream) throws IOException {
+		try {
+			data = readFully(stream);
+		} finally {
+			stream.close();
+		}
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+		header = RecordingHeader.read(in);
+		codec = new FrameCodec(header);
+		decoded = header.createFrameState();
+
+		int offset = data.length - in.available();
+
+		while (in.available() > 0) {
+			int marker = in.readUnsignedByte();
+
+			if (marker == FrameCodec.END_MARKER) {
+				break;
+			} else if (marker != FrameCodec.SEGMENT_MARKER) {
+				throw new IOException("Corrupt recording, unexpected marker " + marker);
+			}
+
+			long firstStep = in.readLong();
+			int count = in.readInt();
+			int rawLength = in.readInt();
+			int compressedLength = in.readInt();
+
+			offset += 1 + 8 + 4 + 4 + 4;
+
+			if (compressedLength > in.available()) {
+				// the recording was cut short, keep what is complete
+				break;
+			}
+
+			addSegment(offset, compressedLength, rawLength, firstStep, count);
+
+			in.skipBytes(compressedLength);
+			offset += compressedLength;
+		}
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		int length = 0;
+		int read;
+
+		while ((read = stream.read(buffer, length, buffer.length - length)) != -1) {
+			length += read;
+
+			if (length == buffer.length) {
+				byte[] grown = new byte[buffer.length * 2];
+				System.arraycopy(buffer, 0, grown, 0, length);
+				buffer = grown;
+			}
+		}
+
+		byte[] result = new byte[length];
+		System.arraycopy(buffer, 0, result, 0, length);
+
+		return result;
+	}
+
+	private void addSegment(int offset, int compressedLength, int rawLength, long firstStep, int count) {
+		if (segmentCount == segmentOffset.length) {
+			int capacity = segmentCount * 2;
+			int[] offsets = new int[capacity];
+			int[] compressedLengths = new int[capacity];
+			int[] rawLengths = new int[capacity];
+			long[] firstFrames = new long[capacity];
+			long[] firstSteps = new long[capacity];
+
+			System.arraycopy(segmentOffset, 0, offsets, 0, segmentCount);
+			System.arraycopy(segmentCompressedLength, 0, compressedLengths, 0, segmentCount);
+			System.arraycopy(segmentRawLength, 0, rawLengths, 0, segmentCount);
+			System.arraycopy(segmentFirstFrame, 0, firstFrames, 0, segmentCount);
+			System.arraycopy(segmentFirstStep, 0, firstSteps, 0, segmentCount);
+
+			segmentOffset = offsets;
+			segmentCompressedLength = compressedLengths;
+			segmentRawLength = rawLengths;
+			segmentFirstFrame = firstFrames;
+			segmentFirstStep = firstSteps;
+		}
+
+		segmentOffset[segmentCount] = offset;
+		segmentCompressedLength[segmentCount] = compressedLength;
+		segmentRawLength[segmentCount] = rawLength;
+		segmentFirstFrame[segmentCount] = frameCount;
+		segmentFirstStep[segmentCount] = firstStep;
+		segmentCount++;
+
+		frameCount += count;
+	}
+
+	public RecordingHeader getHeader() {
+		return header;
+	}
+
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	public float getDuration() {
+		return frameCount * header.getTimeStep();
+	}
+
+	// returns the index of the frame closest to given match time in seconds
+	public long getFrameAt(float time) {
+		if (frameCount == 0) {
+			return 0;
+		}
+
+		long index = (long)Math.floor(time / header.getTimeStep()) - 1;
+
+		return Math.max(0, Math.min(frameCount - 1, index));
+	}
+
+	// fills given frame with the frame at given index, the frame must come from
+	// RecordingHeader.createFrameState()
+	public void readFrame(long index, FrameState frame) throws IOException {
+		if (index < 0 || index >= frameCount) {
+			throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+		}
+
+		int segment = findSegment(index);
+		int frameInSegment = (int)(index - segmentFirstFrame[segment]);
+
+		if (segment != loadedSegment) {
+			loadSegment(segment);
+		}
+
+		if (decodedIndex > frameInSegment) {
+			raw.rewind();
+			decodedIndex = -1;
+		}
+
+		while (decodedIndex < frameInSegment) {
+			codec.decode(raw, decoded, events);
+			decodedIndex++;
+		}
+
+		decoded.step = segmentFirstStep[segment] + frameInSegment;
+		decoded.duration = decoded.step * header.getTimeStep();
+
+		frame.copyFrom(decoded);
+	}
+
+	// returns the events of the frame last read by readFrame()
+	public RecordedEvents getEvents() {
+		return events;
+	}
+
+	private int findSegment(long index) {
+		int low = 0;
+		int high = segmentCount - 1;
+
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+
+			if (segmentFirstFrame[middle] <= index) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return low;
+	}
+
+	private void loadSegment(int segment) throws IOException {
+		loadedSegment = -1;
+
+		raw.setLength(segmentRawLength[segment]);
+
+		inflater.reset();
+		inflater.setInput(data, segmentOffset[segment], segmentCompressedLength[segment]);
+
+		try {
+			int length = 0;
+
+			while (length < segmentRawLength[segment] && !inflater.finished()) {
+				int inflated = inflater.inflate(raw.getData(), length, segmentRawLength[segment] - length);
+
+				if (inflated == 0 && inflater.needsInput()) {
+					break;
+				}
+
+				length += inflated;
+			}
+
+			if (length != segmentRawLength[segment]) {
+				throw new IOException("Corrupt recording segment " + segment);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt recording segment " + segment, e);
+		}
+
+		loadedSegment = segment;
+		decodedIndex = -1;
+	}
+
+	public void close() {
+		inflater.end();
+	}
+}
@@ -0,0 +1,96 @@
+package ee.ut.robotex.recording;
+
+import java.io.IOException;
+
+import ee.ut.robotex.renderer.FrameSource;
+import ee.ut.robotex.simulation.FrameState;
+
+// plays back a recording in wall-clock time at a variable speed, frames are only decoded in
+// update(), so the thread that draws is the only one writing them
+public class ReplayPlayer implements FrameSource {
+	private RecordingReader reader;
+	private FrameState frame;
+	private float position = 0.0f;
+	private float speed = 100.0f;
+	private long lastUpdateTime = 0;
+	private long frameIndex = -1;
+
+	public ReplayPlayer(RecordingReader reader) throws IOException {
+		this.reader = reader;
+		this.frame = reader.getHeader().createFrameState();
+
+		if (reader.getFrameCount() > 0) {
+			loadFrame(0);
+		}
+	}
+
+	@Override
+	public RecordingHeader getHeader() {
+		return reader.getHeader();
+	}
+
+	@Override
+	public synchronized FrameState getFrame() {
+		return frame;
+	}
+
+	public RecordingReader getReader() {
+		return reader;
+	}
+
+	// sets the playback speed in percent of real time, 0 pauses the playback
+	public synchronized void setSpeed(float speed) {
+		this.speed = Math.max(speed, 0.0f);
+	}
+
+	public synchronized float getSpeed() {
+		return speed;
+	}
+
+	// returns the playback position in seconds of match time
+	public synchronized float getPosition() {
+		return position;
+	}
+
+	public float getDuration() {
+		return reader.getDuration();
+	}
+
+	// advances the playback position by the wall time passed since the last update
+	public synchronized void update() throws IOException {
+		long currentTime = System.nanoTime();
+
+		if (lastUpdateTime != 0) {
+			float elapsed = (currentTime - lastUpdateTime) / 1000000000.0f;
+
+			position = Math.min(position + elapsed * speed / 100.0f, getDuration());
+		}
+
+		lastUpdateTime = currentTime;
+
+		showPosition();
+	}
+
+	// jumps to given match time in seconds, the frame is shown from the next update
+	public synchronized void seek(float time) {
+		position = Math.max(0.0f, Math.min(time, getDuration()));
+	}
+
+	private void showPosition() throws IOException {
+		if (reader.getFrameCount() == 0) {
+			return;
+		}
+
+		long index = reader.getFrameAt(position);
+
+		if (index != frameIndex) {
+			loadFrame(index);
+		}
+	}
+
+	private void loadFrame(long index) throws IOException {
+		reader.readFrame(index, frame);
+
+		frameIndex = index;
+	}
+}
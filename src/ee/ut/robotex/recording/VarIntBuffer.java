@@ -0,0 +1,97 @@
+package ee.ut.robotex.recording;
+
+// growable byte buffer with variable length integer encoding, signed values are zigzag
+// encoded so small negative deltas stay small
+class VarIntBuffer {
+	private byte[] data;
+	private int length = 0;
+	private int position = 0;
+
+	public VarIntBuffer(int capacity) {
+		data = new byte[Math.max(capacity, 16)];
+	}
+
+	public void writeByte(int value) {
+		if (length == data.length) {
+			byte[] grown = new byte[data.length * 2];
+			System.arraycopy(data, 0, grown, 0, length);
+			data = grown;
+		}
+
+		data[length++] = (byte)value;
+	}
+
+	public void writeVarInt(int value) {
+		while ((value & ~0x7f) != 0) {
+			writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+
+		writeByte(value);
+	}
+
+	public void writeSignedVarInt(int value) {
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+
+	public int readByte() {
+		if (position >= length) {
+			throw new IllegalStateException("Read past the end of buffer");
+		}
+
+		return data[position++] & 0xff;
+	}
+
+	public int readVarInt() {
+		int value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = readByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	public int readSignedVarInt() {
+		int value = readVarInt();
+
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public void clear() {
+		length = 0;
+		position = 0;
+	}
+
+	// starts reading again from the beginning
+	public void rewind() {
+		position = 0;
+	}
+
+	// makes room for given number of bytes and marks them as contents, used to fill the
+	// buffer directly through getData()
+	public void setLength(int length) {
+		if (data.length < length) {
+			data = new byte[Math.max(length, data.length * 2)];
+		}
+
+		this.length = length;
+		this.position = 0;
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+}
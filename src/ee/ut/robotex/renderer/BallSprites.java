@@ -0,0 +1,84 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+import ee.ut.robotex.simulation.FrameState;
+
+// draws balls by copying images prepared for the current scale instead of filling a shape
+// for every ball, only works while the graphics is scaled evenly and translated, otherwise
+// the caller has to draw shapes
+class BallSprites {
+	private static final AffineTransform IDENTITY = new AffineTransform();
+	private static final int NON_AXIS_ALIGNED = AffineTransform.TYPE_GENERAL_ROTATION
+		| AffineTransform.TYPE_QUADRANT_ROTATION
+		| AffineTransform.TYPE_GENERAL_TRANSFORM
+		| AffineTransform.TYPE_FLIP;
+
+	private BufferedImage active;
+	private BufferedImage inactive;
+	private double spriteScale = 0.0;
+	private float spriteRadius = 0.0f;
+	private float offset;
+
+	// draws all balls of the frame, returns false without drawing anything if the transform
+	// of the graphics is not suitable for sprites
+	public boolean paint(Graphics2D g, float radius, FrameState frame) {
+		AffineTransform transform = g.getTransform();
+
+		if ((transform.getType() & NON_AXIS_ALIGNED) != 0 || transform.getScaleX() != transform.getScaleY()) {
+			return false;
+		}
+
+		double scale = transform.getScaleX();
+
+		if (scale != spriteScale || radius != spriteRadius) {
+			createSprites(scale, radius);
+		}
+
+		double translateX = transform.getTranslateX() - offset;
+		double translateY = transform.getTranslateY() - offset;
+
+		g.setTransform(IDENTITY);
+
+		for (int i = 0; i < frame.ballCount; i++) {
+			g.drawImage(
+				frame.ballActive[i] ? active : inactive,
+				(int)Math.round(translateX + frame.ballX[i] * scale),
+				(int)Math.round(translateY + frame.ballY[i] * scale),
+				null
+			);
+		}
+
+		g.setTransform(transform);
+
+		return true;
+	}
+
+	private void createSprites(double scale, float radius) {
+		float pixelRadius = (float)(radius * scale);
+		int size = (int)Math.ceil(pixelRadius * 2.0f) + 2;
+
+		offset = size / 2.0f;
+		active = createSprite(size, pixelRadius, RenderResources.BALL_ACTIVE);
+		inactive = createSprite(size, pixelRadius, RenderResources.BALL_INACTIVE);
+		spriteScale = scale;
+		spriteRadius = radius;
+	}
+
+	private BufferedImage createSprite(int size, float pixelRadius, Color color) {
+		BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = sprite.createGraphics();
+
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setColor(color);
+		g.fill(new Ellipse2D.Float(size / 2.0f - pixelRadius, size / 2.0f - pixelRadius, pixelRadius * 2.0f, pixelRadius * 2.0f));
+		g.dispose();
+
+		return sprite;
+	}
+}
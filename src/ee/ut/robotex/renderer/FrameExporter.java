@@ -0,0 +1,306 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import ee.ut.robotex.recording.RecordingHeader;
+import ee.ut.robotex.recording.RecordingReader;
+import ee.ut.robotex.simulation.FrameState;
+import ee.ut.robotex.simulation.Simulation;
+
+// renders a recorded or a freshly simulated match into a numbered sequence of PNG images
+// for making videos, without needing a display, frames are drawn like a replay on a pool of
+// worker threads, see ee.ut.robotex.headless.MatchExporter for the command line
+public class FrameExporter {
+	// compresses about twice as fast as the default for slightly larger files
+	private static final float PNG_QUALITY = 0.7f;
+
+	private File directory;
+	private int width;
+	private int height;
+	private float fps;
+	private int threads;
+	private RecordingHeader header;
+	private BlockingQueue<FrameState> freeFrames;
+	private ExecutorService workers;
+	private ThreadLocal<Worker> worker;
+	private List<Worker> createdWorkers;
+	private AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+	private int frameIndex;
+	private AtomicInteger frameCount = new AtomicInteger();
+
+	// state of a single worker thread, nothing in here is shared
+	private class Worker implements FrameSource {
+		private Renderer renderer;
+		private BufferedImage image;
+		private FrameState frame;
+		private ImageWriter writer;
+		private ImageWriteParam writeParam;
+
+		public Worker() {
+			renderer = new Renderer(this);
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			writer = ImageIO.getImageWritersByFormatName("png").next();
+			writeParam = writer.getDefaultWriteParam();
+
+			// the compression level can only be chosen since Java 9
+			if (writeParam.canWriteCompressed()) {
+				writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				writeParam.setCompressionQuality(PNG_QUALITY);
+			}
+		}
+
+		@Override
+		public RecordingHeader getHeader() {
+			return header;
+		}
+
+		@Override
+		public FrameState getFrame() {
+			return frame;
+		}
+
+		public void export(FrameState frame, int index) throws IOException {
+			this.frame = frame;
+
+			Graphics2D g = image.createGraphics();
+
+			try {
+				g.setColor(RenderResources.BACKGROUND);
+				g.fillRect(0, 0, width, height);
+				g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+				g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+				renderer.paint(g, width, height);
+
+				paintDuration(g, frame.duration);
+			} finally {
+				g.dispose();
+			}
+
+			write(getFrameFile(index));
+		}
+
+		private void write(File file) throws IOException {
+			// the stream would otherwise leave the tail of a longer old file in place
+			file.delete();
+
+			ImageOutputStream out = ImageIO.createImageOutputStream(file);
+
+			if (out == null) {
+				throw new IOException("Can't write " + file);
+			}
+
+			try {
+				writer.setOutput(out);
+				writer.write(null, new IIOImage(image, null, null), writeParam);
+			} finally {
+				out.close();
+			}
+		}
+
+		public void dispose() {
+			writer.dispose();
+		}
+
+		private void paintDuration(Graphics2D g, float duration) {
+			String text = Math.round(duration) + "s";
+
+			g.setTransform(new AffineTransform());
+			g.setColor(RenderResources.WHITE);
+			g.setFont(RenderResources.DURATION_FONT);
+
+			FontMetrics fm = g.getFontMetrics();
+
+			g.drawString(text, width - 20 - fm.stringWidth(text), 35);
+		}
+	}
+
+	public FrameExporter(File directory, int width, int height, float fps, int threads) {
+		this.directory = directory;
+		this.width = width;
+		this.height = height;
+		this.fps = fps;
+		this.threads = threads;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public float getFps() {
+		return fps;
+	}
+
+	// returns the file the frame with given index is written to
+	public File getFrameFile(int index) {
+		return new File(directory, String.format("frame-%06d.png", index));
+	}
+
+	// exports given part of a recording, times are in seconds of match time, returns the
+	// number of images written
+	public int export(RecordingReader reader, float start, float duration) throws IOException, InterruptedException {
+		begin(reader.getHeader());
+
+		try {
+			float end = Math.min(start + duration, reader.getDuration());
+
+			for (int i = 0; start + i / fps < end; i++) {
+				FrameState frame = takeFrame();
+
+				reader.readFrame(reader.getFrameAt(start + i / fps), frame);
+
+				submit(frame);
+			}
+		} finally {
+			finish();
+		}
+
+		return frameCount.get();
+	}
+
+	// runs given simulation for given number of seconds and exports it as it goes, returns
+	// the number of images written
+	public int export(Simulation simulation, float duration) throws IOException, InterruptedException {
+		begin(new RecordingHeader(simulation));
+
+		try {
+			float start = simulation.getDuration();
+			int steps = (int)Math.ceil(duration / simulation.getTimeStep());
+			int exported = 0;
+
+			for (int i = 0; i < steps; i++) {
+				simulation.step();
+
+				if (simulation.getDuration() - start >= exported / fps) {
+					FrameState frame = takeFrame();
+
+					simulation.captureFrame(frame);
+
+					submit(frame);
+					exported++;
+				}
+			}
+		} finally {
+			finish();
+		}
+
+		return frameCount.get();
+	}
+
+	private void begin(RecordingHeader header) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can't create directory " + directory);
+		}
+
+		this.header = header;
+		this.error.set(null);
+		this.frameIndex = 0;
+		this.frameCount.set(0);
+
+		// enough frames to keep every worker busy while the next ones are prepared
+		freeFrames = new ArrayBlockingQueue<FrameState>(threads * 2);
+
+		for (int i = 0; i < threads * 2; i++) {
+			freeFrames.offer(header.createFrameState());
+		}
+
+		workers = Executors.newFixedThreadPool(threads);
+		createdWorkers = new ArrayList<Worker>();
+		worker = new ThreadLocal<Worker>() {
+			@Override
+			protected Worker initialValue() {
+				Worker created = new Worker();
+
+				synchronized (createdWorkers) {
+					createdWorkers.add(created);
+				}
+
+				return created;
+			}
+		};
+	}
+
+	// waits for a frame state no worker is using, so the producer never gets more than a
+	// couple of frames ahead
+	private FrameState takeFrame() throws IOException, InterruptedException {
+		rethrowError();
+
+		return freeFrames.take();
+	}
+
+	private void submit(final FrameState frame) {
+		final int index = frameIndex++;
+
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (error.get() == null) {
+						worker.get().export(frame, index);
+						frameCount.incrementAndGet();
+					}
+				} catch (Throwable e) {
+					// the first failure is the interesting one, later ones are usually caused by it
+					error.compareAndSet(null, e);
+				} finally {
+					freeFrames.offer(frame);
+				}
+			}
+		});
+	}
+
+	private void finish() throws IOException, InterruptedException {
+		workers.shutdown();
+
+		while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+			// keep waiting, the queue is short
+		}
+
+		// the pool has terminated, nothing uses the workers any more
+		for (Worker created : createdWorkers) {
+			created.dispose();
+		}
+
+		createdWorkers.clear();
+
+		rethrowError();
+	}
+
+	// throws the first failure of the workers on the producer's thread
+	private void rethrowError() throws IOException {
+		Throwable e = error.get();
+
+		if (e == null) {
+			return;
+		} else if (e instanceof IOException) {
+			throw (IOException)e;
+		} else if (e instanceof RuntimeException) {
+			throw (RuntimeException)e;
+		} else if (e instanceof Error) {
+			throw (Error)e;
+		}
+
+		throw new IOException("Exporting a frame failed", e);
+	}
+}
@@ -0,0 +1,163 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+
+import ee.ut.robotex.recording.ReplayPlayer;
+import ee.ut.robotex.util.RollingMetrics;
+
+// draws a whole window frame, the field and the text overlay, for either kind of render
+// surface, only to be used from the thread that draws
+class FramePainter {
+	private static final long SUMMARY_INTERVAL_NANOS = 250000000L;
+
+	private Renderer renderer;
+	private RollingMetrics stepMetrics;
+	private ReplayPlayer replayPlayer;
+	private RollingMetrics frameMetrics = new RollingMetrics();
+	private RollingMetrics.Summary frameSummary = new RollingMetrics.Summary();
+	private RollingMetrics.Summary stepSummary = new RollingMetrics.Summary();
+	private long lastSummaryTime;
+	private String graphicsFpsText;
+	private String frameTimesText;
+	private String physicsFpsText;
+	private String stepRateText;
+	private String stepTimesText;
+	private long durationSeconds = -1;
+	private String durationText;
+
+	// either the step metrics of a live simulation or a replay player is given
+	public FramePainter(Renderer renderer, RollingMetrics stepMetrics, ReplayPlayer replayPlayer, float targetFps) {
+		this.renderer = renderer;
+		this.stepMetrics = stepMetrics;
+		this.replayPlayer = replayPlayer;
+		this.lastSummaryTime = System.nanoTime() - SUMMARY_INTERVAL_NANOS;
+
+		renderer.setFrameBudget(1.0f / targetFps);
+	}
+
+	// sets the rate frames are meant to be drawn at, painting a frame may take the whole
+	// period before the renderer starts leaving out overlays
+	public void setTargetFps(float targetFps) {
+		renderer.setFrameBudget(1.0f / targetFps);
+	}
+
+	// returns the rolling metrics of the frames drawn
+	public RollingMetrics getFrameMetrics() {
+		return frameMetrics;
+	}
+
+	public void paint(Graphics2D g, int width, int height) {
+		frameMetrics.record();
+
+		g.setColor(RenderResources.BACKGROUND);
+		g.fillRect(0, 0, width, height);
+
+		g.setRenderingHint(
+			RenderingHints.KEY_TEXT_ANTIALIASING,
+			RenderingHints.VALUE_TEXT_ANTIALIAS_ON
+		);
+		g.setRenderingHint(
+			RenderingHints.KEY_RENDERING,
+			RenderingHints.VALUE_RENDER_QUALITY
+		);
+
+		if (replayPlayer != null) {
+			try {
+				replayPlayer.update();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		AffineTransform lastTransform = g.getTransform();
+
+		renderer.paint(g, width, height);
+
+		g.setTransform(lastTransform);
+
+		g.setFont(RenderResources.OVERLAY_FONT);
+
+		// the numbers would be unreadable if they changed every frame, so the texts are only
+		// built again when the summaries are
+		long now = System.nanoTime();
+
+		if (now - lastSummaryTime >= SUMMARY_INTERVAL_NANOS) {
+			updateSummaryTexts();
+
+			lastSummaryTime = now;
+		}
+
+		g.setColor(RenderResources.WHITE);
+		g.drawString(graphicsFpsText, 20, 20);
+		g.drawString(physicsFpsText, 20, 42);
+		g.drawString(stepRateText, 20, 64);
+		g.drawString(frameTimesText, 20, 86);
+
+		int y = 108;
+		float duration;
+
+		if (stepMetrics != null) {
+			g.drawString(stepTimesText, 20, y);
+
+			y += 22;
+			duration = renderer.getFrameDuration();
+		} else {
+			duration = replayPlayer.getPosition();
+		}
+
+		if (renderer.getOverlayLevel() != Renderer.OVERLAYS_ALL) {
+			g.drawString("Overlays reduced", 20, y);
+		}
+
+		// draw round duration
+		long seconds = Math.round(duration);
+
+		if (seconds != durationSeconds) {
+			durationSeconds = seconds;
+			durationText = seconds + "s";
+		}
+
+		g.setColor(RenderResources.WHITE);
+		g.setFont(RenderResources.DURATION_FONT);
+		FontMetrics fm = g.getFontMetrics();
+		g.drawString(durationText, width - 20 - fm.stringWidth(durationText), 35);
+	}
+
+	private void updateSummaryTexts() {
+		frameMetrics.summarize(frameSummary);
+
+		graphicsFpsText = String.format("Graphics FPS: %.1f", frameSummary.getRate());
+		frameTimesText = String.format(
+			"Frame ms p50 %.1f  p95 %.1f  p99 %.1f  max %.1f",
+			frameSummary.getPercentileMillis(50.0),
+			frameSummary.getPercentileMillis(95.0),
+			frameSummary.getPercentileMillis(99.0),
+			frameSummary.getMaxMillis()
+		);
+
+		if (stepMetrics != null) {
+			stepMetrics.summarize(stepSummary);
+
+			// steps per simulated second
+			double simulatedRate = stepSummary.getSimulatedRate();
+
+			physicsFpsText = String.format("Physics FPS: %.1f", simulatedRate > 0.0 ? stepSummary.getRate() / simulatedRate : 0.0);
+			stepRateText = String.format("Steps/s: %.0f", stepSummary.getRate());
+			stepTimesText = String.format(
+				"Step ms p50 %.2f  p95 %.2f  p99 %.2f  max %.2f  (%.2fx real time)",
+				stepSummary.getPercentileMillis(50.0),
+				stepSummary.getPercentileMillis(95.0),
+				stepSummary.getPercentileMillis(99.0),
+				stepSummary.getMaxMillis(),
+				stepSummary.getSimulatedRate()
+			);
+		} else {
+			physicsFpsText = "Replay speed: " + Math.round(replayPlayer.getSpeed()) + "%";
+			stepRateText = "Replay length: " + Math.round(replayPlayer.getDuration()) + "s";
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package ee.ut.robotex.renderer;
+
+import java.util.concurrent.locks.LockSupport;
+
+// paces a render loop at a fixed frame rate, parking until shortly before a frame is due
+// and yielding for the rest
+public class FrameScheduler {
+	private static final long YIELD_NANOS = 1000000L;
+
+	private long periodNanos;
+	private long nextFrame = -1;
+
+	public FrameScheduler(float framesPerSecond) {
+		setFrameRate(framesPerSecond);
+	}
+
+	public void setFrameRate(float framesPerSecond) {
+		periodNanos = (long)(1000000000.0 / framesPerSecond);
+	}
+
+	public float getFrameRate() {
+		return 1000000000.0f / periodNanos;
+	}
+
+	public float getPeriod() {
+		return periodNanos / 1000000000.0f;
+	}
+
+	// blocks until the next frame is due, always call from the same thread
+	public void awaitFrame() throws InterruptedException {
+		long now = System.nanoTime();
+
+		if (nextFrame == -1 || now - nextFrame > periodNanos) {
+			nextFrame = now;
+		}
+
+		while (true) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+
+			long remaining = nextFrame - System.nanoTime();
+
+			if (remaining <= 0) {
+				break;
+			}
+
+			if (remaining > YIELD_NANOS) {
+				LockSupport.parkNanos(this, remaining - YIELD_NANOS);
+			} else {
+				Thread.yield();
+			}
+		}
+
+		nextFrame += periodNanos;
+	}
+}
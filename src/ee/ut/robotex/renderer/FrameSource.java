@@ -0,0 +1,13 @@
+package ee.ut.robotex.renderer;
+
+import ee.ut.robotex.recording.RecordingHeader;
+import ee.ut.robotex.simulation.FrameState;
+
+// supplies plain frame states for the renderer to draw instead of live bodies
+public interface FrameSource {
+	// returns the static description of the field and robots
+	public RecordingHeader getHeader();
+
+	// returns the frame to draw now, it must not be modified by the caller
+	public FrameState getFrame();
+}
@@ -0,0 +1,127 @@
+package ee.ut.robotex.renderer;
+
+import ee.ut.robotex.recording.RecordingHeader;
+import ee.ut.robotex.simulation.FrameState;
+
+// lets the renderer draw at its own rate regardless of the physics rate, poses are blended
+// between the last two steps when the physics steps slower than the renderer draws
+public class InterpolatingFrameSource implements FrameSource {
+	private static final float MAX_BALL_JUMP = 0.5f;
+
+	private FrameSource source;
+	private FrameState previous;
+	private FrameState latest;
+	private FrameState interpolated;
+	private long latestArrival;
+	private double stepInterval = 0.0;
+	private long skippedSteps = 0;
+
+	public InterpolatingFrameSource(FrameSource source) {
+		this.source = source;
+	}
+
+	@Override
+	public RecordingHeader getHeader() {
+		return source.getHeader();
+	}
+
+	@Override
+	public FrameState getFrame() {
+		FrameState frame = source.getFrame();
+
+		if (frame == null) {
+			return null;
+		}
+
+		long now = System.nanoTime();
+
+		if (latest == null) {
+			previous = new FrameState(frame);
+			latest = new FrameState(frame);
+			interpolated = new FrameState(frame);
+			latestArrival = now;
+
+			return latest;
+		}
+
+		if (frame.step != latest.step) {
+			long steps = frame.step - latest.step;
+
+			if (steps > 0) {
+				double interval = (double)(now - latestArrival) / steps;
+
+				stepInterval = stepInterval == 0.0 ? interval : stepInterval * 0.8 + interval * 0.2;
+				skippedSteps += steps - 1;
+			}
+
+			previous.copyFrom(latest);
+			latest.copyFrom(frame);
+			latestArrival = now;
+		}
+
+		// steps were skipped or the simulation jumped, nothing sensible to blend
+		if (latest.step - previous.step != 1 || stepInterval <= 0.0) {
+			return latest;
+		}
+
+		float alpha = (float)((now - latestArrival) / stepInterval);
+
+		if (alpha >= 1.0f) {
+			return latest;
+		}
+
+		interpolate(previous, latest, alpha, interpolated);
+
+		return interpolated;
+	}
+
+	// returns the number of published steps that were never drawn
+	public long getSkippedSteps() {
+		return skippedSteps;
+	}
+
+	private static void interpolate(FrameState from, FrameState to, float alpha, FrameState result) {
+		result.copyFrom(to);
+		result.duration = lerp(from.duration, to.duration, alpha);
+
+		for (int i = 0; i < to.ballCount; i++) {
+			// balls that were just put back or deactivated are shown where they are
+			if (from.ballActive[i] != to.ballActive[i]
+				|| Math.abs(to.ballX[i] - from.ballX[i]) > MAX_BALL_JUMP
+				|| Math.abs(to.ballY[i] - from.ballY[i]) > MAX_BALL_JUMP) {
+				continue;
+			}
+
+			result.ballX[i] = lerp(from.ballX[i], to.ballX[i], alpha);
+			result.ballY[i] = lerp(from.ballY[i], to.ballY[i], alpha);
+		}
+
+		for (int i = 0; i < 2; i++) {
+			if (!from.robotPresent[i] || !to.robotPresent[i]) {
+				continue;
+			}
+
+			result.robotX[i] = lerp(from.robotX[i], to.robotX[i], alpha);
+			result.robotY[i] = lerp(from.robotY[i], to.robotY[i], alpha);
+			result.robotAngle[i] = lerpAngle(from.robotAngle[i], to.robotAngle[i], alpha);
+		}
+	}
+
+	private static float lerp(float from, float to, float alpha) {
+		return from + (to - from) * alpha;
+	}
+
+	// blends along the shorter way around, body angles are not normalized
+	private static float lerpAngle(float from, float to, float alpha) {
+		float twoPi = (float)(Math.PI * 2.0);
+		float delta = (to - from) % twoPi;
+
+		if (delta > Math.PI) {
+			delta -= twoPi;
+		} else if (delta < -Math.PI) {
+			delta += twoPi;
+		}
+
+		return from + delta * alpha;
+	}
+}
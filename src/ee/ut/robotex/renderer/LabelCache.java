@@ -0,0 +1,86 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// keeps the glyph layouts of recently drawn labels so text that stays the same from frame
+// to frame is not laid out again, each painter should have its own
+public class LabelCache {
+	private static final double TRANSFORM_TOLERANCE = 1e-4;
+
+	private Font font;
+	private FontRenderContext context;
+	private double[] contextMatrix = new double[4];
+	private double[] matrix = new double[4];
+	private Map<String, GlyphVector> glyphs;
+
+	public LabelCache(final int capacity) {
+		glyphs = new LinkedHashMap<String, GlyphVector>(capacity * 2, 0.75f, true) {
+			private static final long serialVersionUID = 5718461930485125423L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, GlyphVector> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	// draws text with the current font and color of the graphics, the baseline of the first
+	// character is at given position
+	public void draw(Graphics2D g, String text, float x, float y) {
+		Font currentFont = g.getFont();
+		FontRenderContext currentContext = g.getFontRenderContext();
+
+		if (!currentFont.equals(font) || !isSameContext(currentContext)) {
+			glyphs.clear();
+			font = currentFont;
+			context = currentContext;
+			context.getTransform().getMatrix(contextMatrix);
+		}
+
+		GlyphVector glyphVector = glyphs.get(text);
+
+		if (glyphVector == null) {
+			glyphVector = font.createGlyphVector(context, text);
+			glyphs.put(text, glyphVector);
+		}
+
+		g.drawGlyphVector(glyphVector, x, y);
+	}
+
+	// transforms that rotate there and back again differ by rounding errors only, these
+	// must not empty the cache every frame
+	private boolean isSameContext(FontRenderContext other) {
+		if (context == null) {
+			return false;
+		}
+
+		if (context.equals(other)) {
+			return true;
+		}
+
+		if (context.isAntiAliased() != other.isAntiAliased()
+			|| context.usesFractionalMetrics() != other.usesFractionalMetrics()) {
+			return false;
+		}
+
+		other.getTransform().getMatrix(matrix);
+
+		double scale = Math.max(
+			Math.abs(contextMatrix[0]) + Math.abs(contextMatrix[1]),
+			Math.abs(contextMatrix[2]) + Math.abs(contextMatrix[3])
+		);
+
+		for (int i = 0; i < 4; i++) {
+			if (Math.abs(contextMatrix[i] - matrix[i]) > scale * TRANSFORM_TOLERANCE) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
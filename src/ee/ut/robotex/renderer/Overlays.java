@@ -0,0 +1,36 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+// rendering hint telling paintables whether to draw their optional overlays such as labels
+// and vectors, the renderer turns them off while it is over its frame budget
+public final class Overlays {
+	public static final RenderingHints.Key KEY = new Key();
+	public static final Object ON = "Overlays on";
+	public static final Object OFF = "Overlays off";
+
+	private static class Key extends RenderingHints.Key {
+		public Key() {
+			super(0x0ec1a7);
+		}
+
+		@Override
+		public boolean isCompatibleValue(Object value) {
+			return value == ON || value == OFF;
+		}
+	}
+
+	private Overlays() {
+
+	}
+
+	// returns whether optional overlays should be drawn, they are unless turned off
+	public static boolean isEnabled(Graphics2D g) {
+		return g.getRenderingHint(KEY) != OFF;
+	}
+
+	public static void setEnabled(Graphics2D g, boolean enabled) {
+		g.setRenderingHint(KEY, enabled ? ON : OFF);
+	}
+}
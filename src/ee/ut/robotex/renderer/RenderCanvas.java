@@ -0,0 +1,133 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.DisplayMode;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+
+import ee.ut.robotex.recording.ReplayPlayer;
+import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.util.RollingMetrics;
+
+// active render surface, draws straight into a buffer strategy from its own thread without
+// going through Swing's repaint queue and needs a display
+public class RenderCanvas extends Canvas implements RenderSurface {
+	private static final long serialVersionUID = 3346702139751360823L;
+	private static final float DEFAULT_FPS = 60.0f;
+	
+	private FramePainter painter;
+	private FrameScheduler scheduler;
+	
+	public RenderCanvas(Renderer renderer, Simulation simulation) {
+		scheduler = new FrameScheduler(DEFAULT_FPS);
+		painter = new FramePainter(renderer, simulation.getStepMetrics(), null, DEFAULT_FPS);
+		
+		setup();
+	}
+	
+	// creates a canvas that plays back a recording, the renderer must draw from the same
+	// player
+	public RenderCanvas(Renderer renderer, ReplayPlayer replayPlayer) {
+		scheduler = new FrameScheduler(DEFAULT_FPS);
+		painter = new FramePainter(renderer, null, replayPlayer, DEFAULT_FPS);
+		
+		setup();
+	}
+	
+	private void setup() {
+		// everything is drawn by the render thread
+		setIgnoreRepaint(true);
+		
+		// leave the keyboard to the window so manual controllers keep working
+		setFocusable(false);
+	}
+	
+	@Override
+	public Component getComponent() {
+		return this;
+	}
+	
+	@Override
+	public RollingMetrics getFrameMetrics() {
+		return painter.getFrameMetrics();
+	}
+	
+	public float getFrameRate() {
+		return scheduler.getFrameRate();
+	}
+	
+	@Override
+	public void run() {
+		BufferStrategy strategy = createStrategy();
+		
+		while (true) {
+			try {
+				scheduler.awaitFrame();
+			} catch (InterruptedException e) {
+				return;
+			}
+			
+			if (getWidth() <= 0 || getHeight() <= 0) {
+				continue;
+			}
+			
+			do {
+				do {
+					Graphics2D g = (Graphics2D)strategy.getDrawGraphics();
+					
+					try {
+						painter.paint(g, getWidth(), getHeight());
+					} finally {
+						g.dispose();
+					}
+				} while (strategy.contentsRestored());
+				
+				strategy.show();
+			} while (strategy.contentsLost());
+			
+			// flush the window system's queue so frames are not batched up
+			Toolkit.getDefaultToolkit().sync();
+		}
+	}
+	
+	// waits for the canvas to be shown and sets up double buffering, with page flipping if
+	// possible, matches the frame rate to the display when it is known
+	private BufferStrategy createStrategy() {
+		while (!isDisplayable()) {
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				
+				return null;
+			}
+		}
+		
+		GraphicsConfiguration configuration = getGraphicsConfiguration();
+		DisplayMode displayMode = configuration.getDevice().getDisplayMode();
+		
+		if (displayMode.getRefreshRate() != DisplayMode.REFRESH_RATE_UNKNOWN) {
+			scheduler.setFrameRate(displayMode.getRefreshRate());
+		}
+		
+		try {
+			createBufferStrategy(2, new BufferCapabilities(
+				new ImageCapabilities(true),
+				new ImageCapabilities(true),
+				BufferCapabilities.FlipContents.UNDEFINED
+			));
+		} catch (AWTException e) {
+			createBufferStrategy(2);
+		}
+		
+		painter.setTargetFps(scheduler.getFrameRate());
+		
+		return getBufferStrategy();
+	}
+}
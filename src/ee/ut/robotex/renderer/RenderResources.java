@@ -0,0 +1,58 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+
+import ee.ut.robotex.simulation.Simulation;
+
+// colors, strokes and fonts shared by the renderer and the paintables, only used while
+// painting so a headless match never loads them
+public final class RenderResources {
+	public static final Color WHITE = new Color(255, 255, 255);
+	public static final Color BACKGROUND = new Color(0, 128, 0);
+	public static final Color YELLOW = new Color(220, 220, 0);
+	public static final Color BLUE = new Color(0, 0, 220);
+	public static final Color YELLOW_TRANSLUCENT = new Color(220, 220, 0, 128);
+	public static final Color BLUE_TRANSLUCENT = new Color(0, 0, 220, 128);
+	public static final Color BALL_ACTIVE = new Color(225, 128, 0);
+	public static final Color BALL_INACTIVE = new Color(128, 128, 128);
+	public static final Color ROBOT_BODY = new Color(200, 200, 200);
+	public static final Color WHEEL = new Color(100, 100, 100);
+	public static final Color POWER_FORWARD = new Color(0, 100, 0);
+	public static final Color POWER_BACKWARD = new Color(100, 0, 0);
+	public static final Color SENSOR_FIXTURE = new Color(0, 200, 0);
+	public static final Color DYNAMIC_FIXTURE = new Color(200, 0, 0);
+	public static final Color STATIC_FIXTURE = new Color(200, 200, 200);
+	public static final Color HEADING = new Color(255, 0, 0);
+	public static final Color DRIBBLER_AREA = new Color(0, 255, 0, 128);
+	public static final Color COILGUN_AREA = new Color(255, 0, 0, 128);
+	public static final Color CAMERA_VIEW = new Color(255, 255, 255, 20);
+	public static final Color CAMERA_POSITION = new Color(255, 255, 255, 100);
+	public static final Color YELLOW_DETECTION = new Color(255, 255, 0, 50);
+	public static final Color BLUE_DETECTION = new Color(0, 0, 255, 50);
+
+	public static final BasicStroke OUTLINE_STROKE = new BasicStroke(0.02f);
+
+	// base font, sized in metres as everything on the field
+	public static final Font FIELD_FONT = new Font("Consolas", Font.PLAIN, 1);
+	public static final Font SCORE_FONT = FIELD_FONT.deriveFont(0.5f);
+	public static final Font LABEL_FONT = FIELD_FONT.deriveFont(0.1f);
+	// fonts for text drawn in screen pixels
+	public static final Font OVERLAY_FONT = new Font("Consolas", Font.PLAIN, 12);
+	public static final Font DURATION_FONT = new Font("Consolas", Font.PLAIN, 30);
+
+	private RenderResources() {
+
+	}
+
+	// returns the solid color of given side
+	public static Color getSideColor(Simulation.Side side) {
+		return side == Simulation.Side.YELLOW ? YELLOW : BLUE;
+	}
+
+	// returns the half transparent color of given side used for robot outlines
+	public static Color getSideOutlineColor(Simulation.Side side) {
+		return side == Simulation.Side.YELLOW ? YELLOW_TRANSLUCENT : BLUE_TRANSLUCENT;
+	}
+}
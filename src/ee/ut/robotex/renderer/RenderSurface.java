@@ -0,0 +1,14 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.Component;
+
+import ee.ut.robotex.util.RollingMetrics;
+
+// component that shows the frames of a renderer and draws them from its own thread, which
+// is started by running the surface
+public interface RenderSurface extends Runnable {
+	public Component getComponent();
+
+	// returns the rolling metrics of the frames drawn so far
+	public RollingMetrics getFrameMetrics();
+}
@@ -0,0 +1,42 @@
+package ee.ut.robotex.renderer;
+
+import java.awt.GraphicsEnvironment;
+
+import ee.ut.robotex.recording.ReplayPlayer;
+import ee.ut.robotex.simulation.Simulation;
+
+// picks the render surface once at startup, RenderCanvas unless "soccersim.rendering" is
+// "passive" or there is no display
+public class RenderSurfaceFactory {
+	public static final String PROPERTY = "soccersim.rendering";
+	public static final String ACTIVE = "active";
+	public static final String PASSIVE = "passive";
+
+	private RenderSurfaceFactory() {
+
+	}
+
+	public static boolean isActiveRendering() {
+		if (GraphicsEnvironment.isHeadless()) {
+			return false;
+		}
+
+		return !PASSIVE.equalsIgnoreCase(System.getProperty(PROPERTY, ACTIVE));
+	}
+
+	public static RenderSurface create(Renderer renderer, Simulation simulation) {
+		if (isActiveRendering()) {
+			return new RenderCanvas(renderer, simulation);
+		}
+
+		return new RenderPanel(renderer, simulation);
+	}
+
+	public static RenderSurface create(Renderer renderer, ReplayPlayer replayPlayer) {
+		if (isActiveRendering()) {
+			return new RenderCanvas(renderer, replayPlayer);
+		}
+
+		return new RenderPanel(renderer, replayPlayer);
+	}
+}
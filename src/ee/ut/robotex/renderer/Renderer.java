@@ -5,9 +5,12 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
@@ -22,11 +25,29 @@ import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.Fixture;
 
+import ee.ut.robotex.recording.RecordingHeader;
+import ee.ut.robotex.robot.Robot;
 import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.simulation.Ball;
+import ee.ut.robotex.simulation.BallSensor;
+import ee.ut.robotex.simulation.FrameState;
 import ee.ut.robotex.simulation.Simulation;
 
 public class Renderer implements ImageObserver {
+	// overlay levels, each one leaves out more
+	public static final int OVERLAYS_ALL = 0;
+	public static final int OVERLAYS_NO_PHYSICS = 1;
+	public static final int OVERLAYS_NONE = 2;
+	
+	private static final int OVERLAY_SETTLE_FRAMES = 30;
+	
 	private Simulation simulation;
+	private FrameSource frameSource;
+	private float frameDuration = 0.0f;
+	private float fieldWidth;
+	private float fieldHeight;
+	private float goalWidth;
+	private float goalDepth;
 	private float areaWidth = 5.3f;
 	private float areaHeight = 3.8f;
 	private int lastWidth = 0;
@@ -36,14 +57,58 @@ public class Renderer implements ImageObserver {
     float yMargin = 0.0f;
     private BufferedImage background;
     boolean showPhysics = false;
+    private float frameBudget = 1.0f / 60.0f;
+    private float averagePaintTime = 0.0f;
+    private int overlayLevel = OVERLAYS_ALL;
+    private int framesAtOverlayLevel = 0;
+    private BasicStroke pixelStroke;
+    private BallSprites ballSprites = new BallSprites();
+    private LabelCache scoreLabels = new LabelCache(16);
+    private Ellipse2D.Float ellipse = new Ellipse2D.Float();
+    private Line2D.Float line = new Line2D.Float();
+    private Rectangle2D.Float rectangle = new Rectangle2D.Float();
+    private GeneralPath polygon = new GeneralPath();
 	
+	// draws the frames the simulation publishes, so frame publishing must be enabled
 	public Renderer(Simulation simulation) {
 		this.simulation = simulation;
+		this.frameSource = new InterpolatingFrameSource(new SimulationFrameSource(simulation));
+		this.fieldWidth = simulation.getFieldWidth();
+		this.fieldHeight = simulation.getFieldHeight();
+		this.goalWidth = simulation.getGoalWidth();
+		this.goalDepth = simulation.getGoalDepth();
+	}
+	
+	public Renderer(FrameSource frameSource) {
+		RecordingHeader header = frameSource.getHeader();
+		
+		this.frameSource = frameSource;
+		this.fieldWidth = header.getFieldWidth();
+		this.fieldHeight = header.getFieldHeight();
+		this.goalWidth = header.getGoalWidth();
+		this.goalDepth = header.getGoalDepth();
+	}
+	
+	// seconds a paint may take on average before overlays are left out
+	public void setFrameBudget(float frameBudget) {
+		this.frameBudget = frameBudget;
+	}
+	
+	public float getFrameBudget() {
+		return frameBudget;
+	}
+	
+	// returns the simulated time of the frame painted last
+	public float getFrameDuration() {
+		return frameDuration;
+	}
+	
+	public int getOverlayLevel() {
+		return overlayLevel;
 	}
 
 	protected void paint(Graphics2D g, int width, int height) {
-		float fieldWidth = simulation.getFieldWidth();
-		float fieldHeight = simulation.getFieldHeight();
+		long startTime = System.nanoTime();
 		float fieldMargin = (areaWidth - fieldWidth) / 2.0f;
 		
 		if (width != lastWidth || height != lastHeight) {
@@ -56,118 +121,277 @@ public class Renderer implements ImageObserver {
 			yMargin = Math.max((height / 2.0f / scale) - areaHeight / 2.0f, 0.0f);
 			
 			updateBackground(g.getTransform(), width, height);
+			
+			pixelStroke = new BasicStroke(1.0f / scale);
 		}
 		
 		g.drawImage(background, 0, 0, width, height, this);
 		
+		// antialiased translucent fills go through the mask fill loops, the plain
+		// ones through a general pipe that allocates tiles for every shape
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		
 		// set scale from meters to screen space
 		g.scale(scale, scale);
 		g.translate(xMargin + fieldMargin, yMargin + fieldMargin);
 		
-		g.setColor(new Color(0, 0, 0));
-		g.setStroke(new BasicStroke(1.0f / scale));
+		g.setColor(Color.BLACK);
+		g.setStroke(pixelStroke);
+        g.setFont(RenderResources.SCORE_FONT);
 		
-		Font font = new Font("Consolas", Font.PLAIN, 1);
-        g.setFont(font.deriveFont(0.5f));
+		FrameState frame = frameSource.getFrame();
 		
-		List<Body> bodies = simulation.getBodies();
+		lastWidth = width;
+		lastHeight = height;
 		
-		for (Body body : bodies) {
-			Graphics2D g2 = (Graphics2D)g.create();
-			
-			Fixture fixture = body.getFixtureList();
-			ShapeType type = fixture.getShape().getType();
-			
-			//AffineTransform lastTansform = g.getTransform();
-			
-			g2.translate(body.getPosition().x, body.getPosition().y);
-			g2.rotate(body.getAngle());
-			
-			// let the body paint itself if possible
-			Object userObject = body.getUserData();
-			
-			Graphics2D g3 = (Graphics2D)g2.create();
-			
-			if (userObject instanceof Paintable) {
-				((Paintable)userObject).paint(g3);
-			}
+		if (frame == null) {
+			return;
+		}
+		
+		frameDuration = frame.duration;
+		
+		Overlays.setEnabled(g, overlayLevel < OVERLAYS_NONE);
+		
+		if (simulation != null) {
+			paintLiveFrame(g, frame);
+		} else {
+			paintFrame(g, frameSource.getHeader(), frame);
+		}
+		
+		paintScores(g, frame.yellowScore, frame.blueScore);
+		
+		updateOverlayLevel(System.nanoTime() - startTime);
+	}
+	
+	private void updateOverlayLevel(long paintTime) {
+		averagePaintTime = averagePaintTime * 0.9f + paintTime / 1000000000.0f * 0.1f;
+		framesAtOverlayLevel++;
+		
+		if (framesAtOverlayLevel < OVERLAY_SETTLE_FRAMES) {
+			return;
+		}
+		
+		if (averagePaintTime > frameBudget && overlayLevel < OVERLAYS_NONE) {
+			overlayLevel++;
+			framesAtOverlayLevel = 0;
+		} else if (averagePaintTime < frameBudget * 0.5f && overlayLevel > OVERLAYS_ALL) {
+			overlayLevel--;
+			framesAtOverlayLevel = 0;
+		}
+	}
+	
+	// the bodies are never read here as the simulation keeps changing them
+	private void paintLiveFrame(Graphics2D g, FrameState frame) {
+		RecordingHeader header = frameSource.getHeader();
+		boolean physics = showPhysics && overlayLevel < OVERLAYS_NO_PHYSICS;
+		
+		// robots and controllers are drawn on the same graphics, which is put back after each
+		AffineTransform transform = g.getTransform();
+		Stroke stroke = g.getStroke();
+		Font font = g.getFont();
+		
+		paintBalls(g, header.getBallRadius(), frame);
+		
+		if (physics) {
+			List<Ball> balls = simulation.getBalls();
+			List<Body> staticBodies = simulation.getStaticBodies();
 			
-			if (showPhysics) {
-				Graphics2D g4 = (Graphics2D)g2.create();
+			for (int i = 0; i < frame.ballCount; i++) {
+				g.translate(frame.ballX[i], frame.ballY[i]);
 				
-				// change color based on body type
-				if (fixture.isSensor()) {
-					g4.setColor(new Color(0, 200, 0));
-				} else if (body.getType() == BodyType.DYNAMIC) {
-					g4.setColor(new Color(200, 0, 0));
-				} else {
-					g4.setColor(new Color(200, 200, 200));
-				}
+				paintFixtures(g, balls.get(i).getBody());
 				
-				if (type == ShapeType.CIRCLE) {
-					paintCircle(g4, fixture);
-				} else if (type == ShapeType.POLYGON) {
-					paintPolygon(g4, fixture);
-				}
+				g.translate(-frame.ballX[i], -frame.ballY[i]);
+			}
+			
+			for (int i = 0; i < staticBodies.size(); i++) {
+				Body body = staticBodies.get(i);
 				
-				//g.setTransform(lastTansform);
+				g.translate(body.getPosition().x, body.getPosition().y);
+				g.rotate(body.getAngle());
 				
-				/*
-				// draw AABB
-				AABB aabb = fixture.getAABB();
+				paintFixtures(g, body);
 				
-				Rectangle2D aabbRect = new Rectangle2D.Float(aabb.lowerBound.x, aabb.lowerBound.y, Math.abs(aabb.upperBound.x - aabb.lowerBound.x), Math.abs(aabb.upperBound.y - aabb.lowerBound.y));
+				g.setTransform(transform);
+			}
+		}
+		
+		for (int i = 0; i < 2; i++) {
+			Robot robot = i == FrameState.YELLOW ? simulation.getYellowRobot() : simulation.getBlueRobot();
+			
+			if (robot == null || !frame.robotPresent[i]) {
+				continue;
+			}
+			
+			g.translate(frame.robotX[i], frame.robotY[i]);
+			g.rotate(frame.robotAngle[i]);
+			
+			robot.paint(g, frame, i);
+			
+			if (physics) {
+				g.setStroke(pixelStroke);
 				
-				g.setColor(new Color(200, 200, 200));
-				g.draw(aabbRect);
-				*/
+				paintFixtures(g, robot.getBody());
 			}
 			
-			lastWidth = width;
-			lastHeight = height;
+			restoreGraphics(g, transform, stroke, font);
+		}
+		
+		if (overlayLevel >= OVERLAYS_NONE) {
+			return;
 		}
 		
 		List<RobotController> robotControllers = simulation.getRobotControllers();
 		
-		for (RobotController controller : robotControllers) {
-			Graphics2D g2 = (Graphics2D)g.create();
+		for (int i = 0; i < frame.controllerCount; i++) {
+			robotControllers.get(i).paint(g, frame, i);
 			
-			controller.paint(g2);
+			restoreGraphics(g, transform, stroke, font);
 		}
-		
-		float goalWidth = simulation.getGoalWidth();
-		float goalDepth = simulation.getGoalDepth();
-		
+	}
+	
+	private static void restoreGraphics(Graphics2D g, AffineTransform transform, Stroke stroke, Font font) {
+		g.setTransform(transform);
+		g.setStroke(stroke);
+		g.setFont(font);
+	}
+	
+	// the fixture shapes never change
+	private void paintFixtures(Graphics2D g, Body body) {
+		for (Fixture fixture = body.getFixtureList(); fixture != null; fixture = fixture.getNext()) {
+			// ball sensors reach past the areas their components paint themselves
+			if (fixture.getUserData() instanceof BallSensor) {
+				continue;
+			}
+			
+			ShapeType type = fixture.getShape().getType();
+			
+			// change color based on body type
+			if (fixture.isSensor()) {
+				g.setColor(RenderResources.SENSOR_FIXTURE);
+			} else if (body.getType() == BodyType.DYNAMIC) {
+				g.setColor(RenderResources.DYNAMIC_FIXTURE);
+			} else {
+				g.setColor(RenderResources.STATIC_FIXTURE);
+			}
+			
+			if (type == ShapeType.CIRCLE) {
+				paintCircle(g, fixture);
+			} else if (type == ShapeType.POLYGON) {
+				paintPolygon(g, fixture);
+			}
+		}
+	}
+	
+	private void paintScores(Graphics2D g, int yellowScore, int blueScore) {
 		// draw left score
-        g.setColor(new Color(220, 220, 0));
-        g.drawString(Integer.toString(simulation.getBlueScore()), -goalDepth + goalDepth / 9.0f, fieldHeight / 2.0f + goalWidth / 5.0f);
+        g.setColor(RenderResources.YELLOW);
+        scoreLabels.draw(g, Integer.toString(blueScore), -goalDepth + goalDepth / 9.0f, fieldHeight / 2.0f + goalWidth / 5.0f);
         
         // draw right score
-        g.setColor(new Color(0, 0, 220));
-        g.drawString(Integer.toString(simulation.getYellowScore()), fieldWidth + goalDepth / 9.0f, fieldHeight / 2.0f + goalWidth / 5.0f);
+        g.setColor(RenderResources.BLUE);
+        scoreLabels.draw(g, Integer.toString(yellowScore), fieldWidth + goalDepth / 9.0f, fieldHeight / 2.0f + goalWidth / 5.0f);
+	}
+	
+	// only the shapes stored in the header are known, so no sensors or controller overlays
+	private void paintFrame(Graphics2D g, RecordingHeader header, FrameState frame) {
+		AffineTransform transform = g.getTransform();
+		
+		paintBalls(g, header.getBallRadius(), frame);
+		
+		for (int i = 0; i < 2; i++) {
+			RecordingHeader.RobotInfo robot = header.getRobot(i);
+			
+			if (robot == null || !frame.robotPresent[i]) {
+				continue;
+			}
+			
+			g.translate(frame.robotX[i], frame.robotY[i]);
+			g.rotate(frame.robotAngle[i]);
+			
+			paintRobot(g, robot, frame.wheelPowers[i]);
+			
+			g.setTransform(transform);
+		}
+	}
+	
+	private void paintBalls(Graphics2D g, float ballRadius, FrameState frame) {
+		if (ballSprites.paint(g, ballRadius, frame)) {
+			return;
+		}
+		
+		for (int i = 0; i < frame.ballCount; i++) {
+			g.setColor(frame.ballActive[i] ? RenderResources.BALL_ACTIVE : RenderResources.BALL_INACTIVE);
+			
+			ellipse.setFrame(frame.ballX[i] - ballRadius, frame.ballY[i] - ballRadius, ballRadius * 2.0f, ballRadius * 2.0f);
+			g.fill(ellipse);
+		}
+	}
+	
+	private void paintRobot(Graphics2D g, RecordingHeader.RobotInfo robot, float[] wheelPowers) {
+		g.setColor(RenderResources.ROBOT_BODY);
+		g.fill(robot.outline);
+		
+		Stroke stroke = g.getStroke();
+		
+		g.setStroke(RenderResources.OUTLINE_STROKE);
+		g.setColor(RenderResources.getSideOutlineColor(robot.side));
+		g.draw(robot.outline);
+		g.setStroke(stroke);
+		
+		AffineTransform transform = g.getTransform();
+		
+		for (int i = 0; i < robot.getWheelCount(); i++) {
+			float power = wheelPowers[i];
+			float wheelWidth = robot.wheelRadius[i] * 2.0f;
+			float wheelDepth = robot.wheelDepth[i];
+			
+			g.translate(robot.wheelX[i], robot.wheelY[i]);
+			g.rotate(robot.wheelAngle[i] * Math.PI / 180.0f);
+			
+			g.setColor(RenderResources.WHEEL);
+			rectangle.setRect(-wheelWidth / 2.0f, -wheelDepth / 2.0f, wheelWidth, wheelDepth);
+			g.fill(rectangle);
+			
+			if (Math.abs(power) > 0.1f) {
+				g.setColor(power > 0.0f ? RenderResources.POWER_FORWARD : RenderResources.POWER_BACKWARD);
+				line.setLine(0, 0, 0.5f * power, 0);
+				g.draw(line);
+			}
+			
+			g.setTransform(transform);
+		}
 	}
 
 	private void paintCircle(Graphics2D g, Fixture fixture) {
 		CircleShape shape = (CircleShape)fixture.getShape();
 		
 		float radius = shape.m_radius;
-		Ellipse2D ellipse = new Ellipse2D.Float(-radius, -radius, radius * 2.0f, radius * 2.0f);
-		Line2D centerLine = new Line2D.Float(0, 0, radius, 0);
+		
+		ellipse.setFrame(-radius, -radius, radius * 2.0f, radius * 2.0f);
+		line.setLine(0, 0, radius, 0);
 		
 		g.draw(ellipse);
-		g.draw(centerLine);
+		g.draw(line);
 	}
 	
 	private void paintPolygon(Graphics2D g, Fixture fixture) {
 		PolygonShape shape = (PolygonShape)fixture.getShape();
-		Polygon2D polygon = new Polygon2D();
+		
+		polygon.reset();
 		
 		for (int i = 0; i < shape.getVertexCount(); i++) {
 			Vec2 vertex = shape.getVertex(i);
 			
-			polygon.addPoint(vertex.x, vertex.y);
+			if (i == 0) {
+				polygon.moveTo(vertex.x, vertex.y);
+			} else {
+				polygon.lineTo(vertex.x, vertex.y);
+			}
 		}
 		
+		polygon.closePath();
+		
 		g.draw(polygon);
 	}
 	
@@ -185,15 +409,11 @@ public class Renderer implements ImageObserver {
 		g.setColor(new Color(0, 128, 0));
 		g.fill(new Rectangle2D.Float(0, 0, areaWidth, areaHeight));
 		
-		float fieldWidth = simulation.getFieldWidth();
-		float fieldHeight = simulation.getFieldHeight();
-		float goalWidth = simulation.getGoalWidth();
 		float lineWidth = 0.05f;
 		float centerCircleRadius = 0.4f;
 		float goalLineWidth = 0.3f;
 		float goalLineDistance = 0.5f;
 		float goalCircleRadius = 0.5f;
-		float goalDepth = simulation.getGoalDepth();
 		float fieldMargin = (areaWidth - fieldWidth) / 2.0f;
 		
 		g.translate(fieldMargin, fieldMargin);
@@ -0,0 +1,36 @@
+package ee.ut.robotex.renderer;
+
+import ee.ut.robotex.recording.RecordingHeader;
+import ee.ut.robotex.simulation.FrameExchange;
+import ee.ut.robotex.simulation.FrameState;
+import ee.ut.robotex.simulation.Simulation;
+
+// supplies the frames a running simulation publishes at the end of every step, see
+// Simulation.enableFrameExchange(), only one thread may draw from it
+public class SimulationFrameSource implements FrameSource {
+	private Simulation simulation;
+	private RecordingHeader header;
+
+	public SimulationFrameSource(Simulation simulation) {
+		this.simulation = simulation;
+	}
+
+	// the header is made on first use as the robots are usually set after the renderer has
+	// been created
+	@Override
+	public RecordingHeader getHeader() {
+		if (header == null) {
+			header = new RecordingHeader(simulation);
+		}
+
+		return header;
+	}
+
+	// returns the latest published frame, null until frames are published
+	@Override
+	public FrameState getFrame() {
+		FrameExchange frameExchange = simulation.getFrameExchange();
+
+		return frameExchange != null ? frameExchange.getReadFrame() : null;
+	}
+}
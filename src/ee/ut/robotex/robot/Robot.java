@@ -1,5 +1,11 @@
 package ee.ut.robotex.robot;
 
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.util.Collections;
+import java.util.List;
+
 import org.jbox2d.collision.shapes.PolygonShape;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
@@ -10,11 +16,17 @@ import org.jbox2d.dynamics.World;
 
 import ee.ut.robotex.renderer.Paintable;
 import ee.ut.robotex.renderer.Polygon2D;
+import ee.ut.robotex.renderer.RenderResources;
+import ee.ut.robotex.robot.components.Wheel;
+import ee.ut.robotex.simulation.CollisionCategory;
+import ee.ut.robotex.simulation.FrameState;
 import ee.ut.robotex.simulation.GameInfo;
+import ee.ut.robotex.simulation.Restorable;
 import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.simulation.Snapshot;
 import ee.ut.robotex.simulation.StepListener;
 
-public abstract class Robot implements Paintable, StepListener {
+public abstract class Robot implements StepListener, Restorable {
 	protected Simulation.Side side;
 	protected float angularDamping = 0.9f;
 	protected float linearDamping = 0.7f;
@@ -69,11 +81,23 @@ public abstract class Robot implements Paintable, StepListener {
 		fixture.setFriction(friction);
 		fixture.setUserData(this);
 		
+		CollisionCategory.apply(fixture, CollisionCategory.ROBOT, CollisionCategory.ROBOT_MASK);
+		
 		setup();
 	}
 	
 	protected void setup() {};
 	
+	@Override
+	public void saveState(Snapshot snapshot) {
+
+	}
+
+	@Override
+	public void restoreState(Snapshot snapshot) {
+
+	}
+	
 	@Override
 	public void stepBeforePhysics(float dt) {
 
@@ -84,9 +108,56 @@ public abstract class Robot implements Paintable, StepListener {
 
 	}
 	
+	// empty for robots without driving wheels
+	public List<Wheel> getWheels() {
+		return Collections.emptyList();
+	}
+	
 	public abstract String getName();
 	
 	public abstract float getRadius();
 	
-	protected abstract Polygon2D getOutline();
+	public abstract Polygon2D getOutline();
+	
+	// drive direction in radians shown by the renderer, zero for robots without one
+	public float getHeading() {
+		return 0.0f;
+	}
+	
+	public float getPower() {
+		return 0.0f;
+	}
+	
+	// draws the robot as it is in the frame at given robot index, never from live state
+	public abstract void paint(Graphics2D g, FrameState frame, int index);
+	
+	protected void paintBody(Graphics2D g) {
+		Polygon2D outline = getOutline();
+		Stroke stroke = g.getStroke();
+		
+		g.setColor(RenderResources.ROBOT_BODY);
+		g.fill(outline);
+		
+		g.setStroke(RenderResources.OUTLINE_STROKE);
+		g.setColor(RenderResources.getSideOutlineColor(side));
+		g.draw(outline);
+		g.setStroke(stroke);
+	}
+	
+	protected void paintWheels(Graphics2D g, AffineTransform transform, float[] wheelPowers) {
+		List<Wheel> wheels = getWheels();
+		
+		for (int i = 0; i < wheels.size(); i++) {
+			wheels.get(i).paint(g, wheelPowers[i]);
+			
+			g.setTransform(transform);
+		}
+	}
+	
+	// puts back the robot's transform, cheaper than a new graphics for every part
+	protected void paintPart(Graphics2D g, AffineTransform transform, Paintable part) {
+		part.paint(g);
+		
+		g.setTransform(transform);
+	}
 }
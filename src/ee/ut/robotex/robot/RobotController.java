@@ -1,9 +1,20 @@
 package ee.ut.robotex.robot;
 
-import ee.ut.robotex.renderer.Paintable;
+import java.awt.Graphics2D;
+
+import ee.ut.robotex.simulation.FrameState;
 import ee.ut.robotex.simulation.StepListener;
 
-abstract public class RobotController implements StepListener, Paintable {
+abstract public class RobotController implements StepListener {
 
 	abstract public String getName();
+	
+	// copies what paint() shows into the frame at given controller index, called from the
+	// simulation thread
+	public void captureFrame(FrameState frame, int index) {
+		
+	}
+	
+	// draws the overlay from the values captureFrame() stored, called from the drawing thread
+	abstract public void paint(Graphics2D g, FrameState frame, int index);
 }
@@ -1,6 +1,5 @@
 package ee.ut.robotex.robot.components;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
 
@@ -9,11 +8,17 @@ import org.jbox2d.dynamics.Body;
 
 import ee.ut.robotex.renderer.Paintable;
 import ee.ut.robotex.renderer.Polygon2D;
+import ee.ut.robotex.renderer.RenderResources;
 import ee.ut.robotex.simulation.Ball;
+import ee.ut.robotex.simulation.BallSensor;
 import ee.ut.robotex.simulation.GameInfo;
+import ee.ut.robotex.simulation.MatchEvent;
+import ee.ut.robotex.simulation.Restorable;
+import ee.ut.robotex.simulation.Snapshot;
 import ee.ut.robotex.simulation.StepListener;
+import ee.ut.robotex.util.ConvexPolygon;
 
-public class Coilgun implements StepListener, Paintable {
+public class Coilgun implements StepListener, Paintable, Restorable {
 	
 	private Body body;
 	private GameInfo game;
@@ -25,6 +30,12 @@ public class Coilgun implements StepListener, Paintable {
 	private float strength = 1.0f;
 	private boolean kick = false;
 	private Polygon2D area;
+	private Rectangle2D.Float shape;
+	private ConvexPolygon globalArea;
+	private BallSensor sensor;
+	private Vec2 localPos = new Vec2();
+	private Vec2 worldPos = new Vec2();
+	private Vec2 kickForce = new Vec2();
 	private float duration = 0.0f;
 	private float kickDelay = 0.1f;
 	private float lastKickTime = 0.0f;
@@ -34,6 +45,7 @@ public class Coilgun implements StepListener, Paintable {
 		this.game = game;
 		this.x = x;
 		this.y = y;
+		this.sensor = new BallSensor(body);
 		
 		this.update(angle, width, range);
 	}
@@ -49,6 +61,12 @@ public class Coilgun implements StepListener, Paintable {
 		area.addPoint(-this.width / 2.0f, -this.range);
 		area.addPoint(this.width / 2.0f, -this.range);
 		area.addPoint(this.width / 2.0f, 0.0f);
+		
+		// moved to world coordinates in place every step
+		globalArea = new ConvexPolygon(area.npoints);
+		
+		// the ball radius covers the area being tested a ball radius further out
+		sensor.setBox(x, y - this.range / 2.0f, this.width / 2.0f, this.range / 2.0f);
 	}
 	
 	public void kick() {
@@ -65,44 +83,71 @@ public class Coilgun implements StepListener, Paintable {
 		g.translate(x, y);
 		g.rotate(angle * Math.PI / 180.0f);
 		
-		float width = 0.04f;
-		float height = 0.1f;
+		if (shape == null) {
+			shape = new Rectangle2D.Float(-0.02f, 0, 0.04f, 0.1f);
+		}
 		
-		g.setColor(new Color(100, 100, 100));
-		g.fill(new Rectangle2D.Float(-width / 2.0f, 0, width, height));
+		g.setColor(RenderResources.WHEEL);
+		g.fill(shape);
 		
-		g.setColor(new Color(255, 0, 0, 128));
+		g.setColor(RenderResources.COILGUN_AREA);
 		g.fill(area);
 	}
 
+	@Override
+	public void saveState(Snapshot snapshot) {
+		snapshot.writeFloat(duration);
+		snapshot.writeFloat(lastKickTime);
+		snapshot.writeFloat(strength);
+		snapshot.writeBoolean(kick);
+	}
+
+	@Override
+	public void restoreState(Snapshot snapshot) {
+		duration = snapshot.readFloat();
+		lastKickTime = snapshot.readFloat();
+		strength = snapshot.readFloat();
+		kick = snapshot.readBoolean();
+	}
+
 	@Override
 	public void stepBeforePhysics(float dt) {
 		duration += dt;
 		
-		Polygon2D globalView = new Polygon2D();
-		float ballRadius = game.getBalls().get(0).getRadius();
+		sensor.setTimeStep(dt);
 		
-		for (int i = 0; i < area.npoints; i++) {
-			float localX = area.xpoints[i];
-			float localY = area.ypoints[i];
+		// only the balls touching the sensor can be in the area
+		if (sensor.size() > 0) {
+			float ballRadius = sensor.get(0).getRadius();
 			
-			Vec2 worldPos = body.getWorldPoint(new Vec2(localX + x, localY + y - ballRadius));
+			for (int i = 0; i < area.npoints; i++) {
+				localPos.set(area.xpoints[i] + x, area.ypoints[i] + y - ballRadius);
+				body.getWorldPointToOut(localPos, worldPos);
+				
+				globalArea.setPoint(i, worldPos.x, worldPos.y);
+			}
 			
-			globalView.addPoint(worldPos.x, worldPos.y);
+			globalArea.update();
 		}
 		
-		for (Ball ball : game.getBalls()) {
-			if (globalView.contains(ball.getX(), ball.getY())) {
-				//System.out.println("Coilgun sees #" + ball.getId());
-				
-				// make sure we dont apply the impulse several times
-				if (kick && duration - lastKickTime >= kickDelay) {
-					Vec2 kickForce = new Vec2(strength * dt * (float)Math.cos(body.getAngle() - 90.0f * Math.PI / 180.0f), strength * dt * (float)Math.sin(body.getAngle() - 90.0f * Math.PI / 180.0f));
-					//ball.getBody().applyForce(kickForce, ball.getBody().getPosition());
-					ball.getBody().applyLinearImpulse(kickForce, ball.getBody().getPosition());
+		for (int i = 0; i < sensor.size(); i++) {
+			Ball ball = sensor.get(i);
+			
+			if (!globalArea.contains(ball.getX(), ball.getY())) {
+				continue;
+			}
+			
+			//System.out.println("Coilgun sees #" + ball.getId());
+			
+			// make sure we dont apply the impulse several times
+			if (kick && duration - lastKickTime >= kickDelay) {
+				kickForce.set(strength * dt * (float)Math.cos(body.getAngle() - 90.0f * Math.PI / 180.0f), strength * dt * (float)Math.sin(body.getAngle() - 90.0f * Math.PI / 180.0f));
+				//ball.getBody().applyForce(kickForce, ball.getBody().getPosition());
+				ball.getBody().applyLinearImpulse(kickForce, ball.getBody().getPosition());
+			
+				lastKickTime = duration;
 				
-					lastKickTime = duration;
-				}
+				game.getEventBus().publish(MatchEvent.Type.KICK, MatchEvent.sideOf(body), ball.getId(), ball.getX(), ball.getY(), strength);
 			}
 		}
 		
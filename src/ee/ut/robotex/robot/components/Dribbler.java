@@ -1,6 +1,5 @@
 package ee.ut.robotex.robot.components;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
 
 import org.jbox2d.common.Vec2;
@@ -8,11 +7,17 @@ import org.jbox2d.dynamics.Body;
 
 import ee.ut.robotex.renderer.Paintable;
 import ee.ut.robotex.renderer.Polygon2D;
+import ee.ut.robotex.renderer.RenderResources;
 import ee.ut.robotex.simulation.Ball;
+import ee.ut.robotex.simulation.BallSensor;
 import ee.ut.robotex.simulation.GameInfo;
+import ee.ut.robotex.simulation.MatchEvent;
+import ee.ut.robotex.simulation.Restorable;
+import ee.ut.robotex.simulation.Snapshot;
 import ee.ut.robotex.simulation.StepListener;
+import ee.ut.robotex.util.ConvexPolygon;
 
-public class Dribbler implements StepListener, Paintable {
+public class Dribbler implements StepListener, Paintable, Restorable {
 	
 	private Body body;
 	private GameInfo game;
@@ -24,13 +29,21 @@ public class Dribbler implements StepListener, Paintable {
 	private float strength = 1.0f;
 	private boolean active = true;
 	private boolean gotBall = false;
+	private Ball heldBall = null;
 	private Polygon2D area;
+	private ConvexPolygon globalArea;
+	private BallSensor sensor;
+	private Vec2 localPos = new Vec2();
+	private Vec2 worldPos = new Vec2();
+	private Vec2 globalPos = new Vec2();
+	private Vec2 dribblerForce = new Vec2();
 	
 	public Dribbler(Body body, GameInfo game, float x, float y, float angle, float width, float range, float strength) {
 		this.body = body;
 		this.game = game;
 		this.x = x;
 		this.y = y;
+		this.sensor = new BallSensor(body);
 		this.strength = strength;
 		
 		this.update(angle, width, range);
@@ -47,6 +60,12 @@ public class Dribbler implements StepListener, Paintable {
 		area.addPoint(-this.width / 2.0f, -this.range);
 		area.addPoint(this.width / 2.0f, -this.range);
 		area.addPoint(this.width / 2.0f, 0.0f);
+		
+		// moved to world coordinates in place every step
+		globalArea = new ConvexPolygon(area.npoints);
+		
+		// the ball radius covers the area being tested a ball radius further out
+		sensor.setBox(x, y - this.range / 2.0f, this.width / 2.0f, this.range / 2.0f);
 	}
 	
 	public void setActive(boolean isActive) {
@@ -66,47 +85,91 @@ public class Dribbler implements StepListener, Paintable {
 		g.translate(x, y);
 		g.rotate(angle * Math.PI / 180.0f);
 		
-		g.setColor(new Color(0, 255, 0, 128));
+		g.setColor(RenderResources.DRIBBLER_AREA);
 		g.fill(area);
 	}
 
+	@Override
+	public void saveState(Snapshot snapshot) {
+		snapshot.writeBoolean(gotBall);
+		snapshot.writeInt(heldBall != null ? heldBall.getId() : -1);
+		snapshot.writeBoolean(active);
+		snapshot.writeFloat(strength);
+	}
+
+	@Override
+	public void restoreState(Snapshot snapshot) {
+		gotBall = snapshot.readBoolean();
+		
+		int heldBallId = snapshot.readInt();
+		
+		heldBall = heldBallId != -1 ? game.getBallById(heldBallId) : null;
+		active = snapshot.readBoolean();
+		strength = snapshot.readFloat();
+	}
+
 	@Override
 	public void stepBeforePhysics(float dt) {
+		boolean hadBall = gotBall;
+		
 		gotBall = false;
 		
-		Polygon2D globalView = new Polygon2D();
-		float ballRadius = game.getBalls().get(0).getRadius();
+		sensor.setTimeStep(dt);
 		
-		for (int i = 0; i < area.npoints; i++) {
-			float localX = area.xpoints[i];
-			float localY = area.ypoints[i];
+		// only the balls touching the sensor can be in the area
+		if (sensor.size() > 0) {
+			float ballRadius = sensor.get(0).getRadius();
 			
-			Vec2 worldPos = body.getWorldPoint(new Vec2(localX + x, localY + y - ballRadius));
+			for (int i = 0; i < area.npoints; i++) {
+				localPos.set(area.xpoints[i] + x, area.ypoints[i] + y - ballRadius);
+				body.getWorldPointToOut(localPos, worldPos);
+				
+				globalArea.setPoint(i, worldPos.x, worldPos.y);
+			}
 			
-			globalView.addPoint(worldPos.x, worldPos.y);
+			globalArea.update();
 		}
 		
-		Vec2 globalPos = body.getWorldPoint(new Vec2(x, y));
+		localPos.set(x, y);
+		body.getWorldPointToOut(localPos, globalPos);
 		
-		for (Ball ball : game.getBalls()) {
-			if (globalView.contains(ball.getX(), ball.getY())) {
-				//System.out.println("Dribbler sees #" + ball.getId());
+		for (int i = 0; i < sensor.size(); i++) {
+			Ball ball = sensor.get(i);
+			
+			if (!globalArea.contains(ball.getX(), ball.getY())) {
+				continue;
+			}
+			
+			//System.out.println("Dribbler sees #" + ball.getId());
+			
+			if (active) {
+				// no lateral force
+				//Vec2 dribblerForce = new Vec2(strength * (float)Math.cos(body.getAngle() + 90.0f * Math.PI / 180.0f), strength * (float)Math.sin(body.getAngle() + 90.0f * Math.PI / 180.0f));
 				
-				if (active) {
-					// no lateral force
-					//Vec2 dribblerForce = new Vec2(strength * (float)Math.cos(body.getAngle() + 90.0f * Math.PI / 180.0f), strength * (float)Math.sin(body.getAngle() + 90.0f * Math.PI / 180.0f));
-					
-					// this approach tries to keep the ball centered at dribbler
-					Vec2 dribblerForce = new Vec2(ball.getX() - globalPos.x, ball.getY() - globalPos.y);
-					dribblerForce.normalize();
-					dribblerForce.mulLocal(-strength);
-					
-					ball.getBody().applyForce(dribblerForce, ball.getBody().getPosition());
-					body.applyForce(dribblerForce.mul(-1.0f), body.getPosition());
-				}
+				// this approach tries to keep the ball centered at dribbler
+				dribblerForce.set(ball.getX() - globalPos.x, ball.getY() - globalPos.y);
+				dribblerForce.normalize();
+				dribblerForce.mulLocal(-strength);
 				
-				gotBall = true;
+				ball.getBody().applyForce(dribblerForce, ball.getBody().getPosition());
+				body.applyForce(dribblerForce.negateLocal(), body.getPosition());
+			}
+			
+			if (!gotBall && !hadBall) {
+				game.getEventBus().publish(MatchEvent.Type.DRIBBLER_ACQUIRED, MatchEvent.sideOf(body), ball.getId(), ball.getX(), ball.getY(), 0.0f);
 			}
+			
+			if (!gotBall) {
+				heldBall = ball;
+			}
+			
+			gotBall = true;
+		}
+		
+		if (hadBall && !gotBall && heldBall != null) {
+			game.getEventBus().publish(MatchEvent.Type.DRIBBLER_LOST, MatchEvent.sideOf(body), heldBall.getId(), heldBall.getX(), heldBall.getY(), 0.0f);
+			
+			heldBall = null;
 		}
 	}
 
@@ -0,0 +1,103 @@
+package ee.ut.robotex.robot.components;
+
+import java.util.List;
+
+import org.jbox2d.common.Mat22;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+
+import ee.ut.robotex.simulation.StepListener;
+
+// drives a robot body with all of its wheels at once, summing their forces into a single
+// force and torque
+public class Drivetrain implements StepListener {
+	private Body body;
+	private Wheel[] wheels;
+	private float[] directionX;
+	private float[] directionY;
+	private float[] lateralX;
+	private float[] lateralY;
+	private float[] positionX;
+	private float[] positionY;
+	private float[] directionArm;
+	private float[] lateralArm;
+	private Vec2 force = new Vec2();
+
+	public Drivetrain(Body body, List<Wheel> wheels) {
+		int count = wheels.size();
+
+		this.body = body;
+		this.wheels = wheels.toArray(new Wheel[count]);
+		this.directionX = new float[count];
+		this.directionY = new float[count];
+		this.lateralX = new float[count];
+		this.lateralY = new float[count];
+		this.positionX = new float[count];
+		this.positionY = new float[count];
+		this.directionArm = new float[count];
+		this.lateralArm = new float[count];
+
+		for (int i = 0; i < count; i++) {
+			Wheel wheel = this.wheels[i];
+
+			directionX[i] = wheel.directionX;
+			directionY[i] = wheel.directionY;
+			lateralX[i] = wheel.lateralX;
+			lateralY[i] = wheel.lateralY;
+			positionX[i] = wheel.x;
+			positionY[i] = wheel.y;
+
+			// torque of a unit force along each direction, also the angular velocity's share of the speed along it
+			directionArm[i] = wheel.x * wheel.directionY - wheel.y * wheel.directionX;
+			lateralArm[i] = wheel.x * wheel.lateralY - wheel.y * wheel.lateralX;
+		}
+	}
+
+	public int getWheelCount() {
+		return wheels.length;
+	}
+
+	@Override
+	public void stepBeforePhysics(float dt) {
+		Mat22 rotation = body.getTransform().R;
+		Vec2 velocity = body.getLinearVelocity();
+		Vec2 localCenter = body.getLocalCenter();
+		float angularVelocity = body.getAngularVelocity();
+		float cos = rotation.col1.x;
+		float sin = rotation.col1.y;
+
+		// velocity of the body origin in body coordinates, the body velocity is the center's
+		float originVelocityX = cos * velocity.x + sin * velocity.y + angularVelocity * localCenter.y;
+		float originVelocityY = -sin * velocity.x + cos * velocity.y - angularVelocity * localCenter.x;
+		float forceX = 0.0f;
+		float forceY = 0.0f;
+		float torque = 0.0f;
+
+		for (int i = 0; i < wheels.length; i++) {
+			Wheel wheel = wheels[i];
+			float wheelVelocityX = originVelocityX - angularVelocity * positionY[i];
+			float wheelVelocityY = originVelocityY + angularVelocity * positionX[i];
+			float lateralVelocity = originVelocityX * lateralX[i] + originVelocityY * lateralY[i] + angularVelocity * lateralArm[i];
+
+			wheel.setLocalVelocity(wheelVelocityX, wheelVelocityY, lateralVelocity);
+
+			float longitudinalForce = wheel.getLongitudinalForce();
+			float lateralForce = wheel.getLateralForce();
+
+			forceX += longitudinalForce * directionX[i] + lateralForce * lateralX[i];
+			forceY += longitudinalForce * directionY[i] + lateralForce * lateralY[i];
+			torque += longitudinalForce * directionArm[i] + lateralForce * lateralArm[i];
+		}
+
+		force.set(cos * forceX - sin * forceY, sin * forceX + cos * forceY);
+
+		// the torque is around the origin, applying the force there adds the center's share
+		body.applyForce(force, body.getPosition());
+		body.applyTorque(torque);
+	}
+
+	@Override
+	public void stepAfterPhysics(float dt) {
+
+	}
+}
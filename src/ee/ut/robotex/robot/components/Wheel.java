@@ -1,6 +1,5 @@
 package ee.ut.robotex.robot.components;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
@@ -8,21 +7,30 @@ import java.awt.geom.Rectangle2D;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 
-import ee.ut.robotex.renderer.Paintable;
-import ee.ut.robotex.simulation.StepListener;
+import ee.ut.robotex.renderer.Overlays;
+import ee.ut.robotex.renderer.RenderResources;
+import ee.ut.robotex.simulation.Restorable;
+import ee.ut.robotex.simulation.Snapshot;
 
-public class Wheel implements StepListener, Paintable {
+// a driving wheel's mounting and power, the forces of all of a robot's wheels are applied
+// by its Drivetrain
+public class Wheel implements Restorable {
 	protected Body body;
 	protected float x;
 	protected float y;
 	protected float angle;
 	protected float maxForce;
 	protected float power = 0;
-	protected Vec2 velocity;
 	protected Vec2 localVelocity;
 	protected float lateralVelocity;
 	protected float lateralGrip;
 	protected float wheelRadius;
+	protected float directionX;
+	protected float directionY;
+	protected float lateralX;
+	protected float lateralY;
+	private Rectangle2D.Float shape;
+	private Line2D.Float line;
 	public float depth;	// XXX: Hack to avoid breaking interfaces
 	
 	public Wheel(Body body, float x, float y, float angle, float maxTorque, float wheelRadius, float lateralGrip) {
@@ -33,9 +41,14 @@ public class Wheel implements StepListener, Paintable {
 		this.maxForce = maxTorque / wheelRadius;
 		this.wheelRadius = wheelRadius;
 		this.lateralGrip = lateralGrip;
-		this.velocity = new Vec2(0.0f, 0.0f);
 		this.localVelocity = new Vec2(0.0f, 0.0f);
 		this.depth = 0.05f;
+		
+		// rolling and lateral directions in body coordinates, the mounting never changes
+		this.directionX = (float)Math.cos(angle * (float)Math.PI / 180.0f);
+		this.directionY = (float)Math.sin(angle * (float)Math.PI / 180.0f);
+		this.lateralX = -directionY;
+		this.lateralY = directionX;
 	}
 	
 	public void setPower(float power) {
@@ -52,6 +65,22 @@ public class Wheel implements StepListener, Paintable {
 		this.lateralGrip = grip;
 	}
 	
+	public float getX() {
+		return x;
+	}
+	
+	public float getY() {
+		return y;
+	}
+	
+	public float getAngle() {
+		return angle;
+	}
+	
+	public float getWheelRadius() {
+		return wheelRadius;
+	}
+	
 	public float getPower() {
 		return power;
 	}
@@ -63,80 +92,73 @@ public class Wheel implements StepListener, Paintable {
 	public float getLateralForce() {
 		return -lateralVelocity * lateralGrip;
 	}
+	
+	// in body coordinates, set by the Drivetrain that steps the wheel
+	void setLocalVelocity(float velocityX, float velocityY, float lateralVelocity) {
+		this.localVelocity.set(velocityX, velocityY);
+		this.lateralVelocity = lateralVelocity;
+	}
 
-	@Override
-	public void paint(Graphics2D g) {
+	// the power comes from the frame being drawn, the wheel itself keeps changing
+	public void paint(Graphics2D g, float power) {
+		boolean overlays = Overlays.isEnabled(g);
+		
+		if (shape == null) {
+			shape = new Rectangle2D.Float();
+			line = new Line2D.Float();
+		}
+		
 		g.translate(x, y);
-
-		// draw velocity at wheel position
-		g.setColor(new Color(255, 255, 255));
-		g.draw(new Line2D.Float(0.0f, 0.0f, localVelocity.x, localVelocity.y));
 		
 		// rotate to wheel orientation
 		g.rotate(angle * Math.PI / 180.0f);
-		g.setColor(new Color(100, 100, 100));
+		g.setColor(RenderResources.WHEEL);
 		
 		float width = 2*this.wheelRadius; // 0.1f;
 		
-		g.fill(new Rectangle2D.Float(-width / 2.0f, -depth / 2.0f, width, depth));
+		shape.setRect(-width / 2.0f, -depth / 2.0f, width, depth);
+		g.fill(shape);
+		
+		if (!overlays) {
+			return;
+		}
 		
 		if (power > 0.0f) {
-			g.setColor(new Color(0, 100, 0));
+			g.setColor(RenderResources.POWER_FORWARD);
 		} else {
-			g.setColor(new Color(100, 0, 0));
+			g.setColor(RenderResources.POWER_BACKWARD);
 		}
 		
 		if (Math.abs(power) > 0.1f) {
-			g.draw(new Line2D.Float(0, 0, 0.5f * power, 0));
+			drawLine(g, 0, 0, 0.5f * power, 0);
 			
 			if (power > 0.0f) {
-				g.draw(new Line2D.Float(0.5f * power - 0.05f, 0.05f, 0.5f * power, 0));
-				g.draw(new Line2D.Float(0.5f * power - 0.05f, -0.05f, 0.5f * power, 0));
+				drawLine(g, 0.5f * power - 0.05f, 0.05f, 0.5f * power, 0);
+				drawLine(g, 0.5f * power - 0.05f, -0.05f, 0.5f * power, 0);
 			} else {
-				g.draw(new Line2D.Float(0.5f * power + 0.05f, 0.05f, 0.5f * power, 0));
-				g.draw(new Line2D.Float(0.5f * power + 0.05f, -0.05f, 0.5f * power, 0));
+				drawLine(g, 0.5f * power + 0.05f, 0.05f, 0.5f * power, 0);
+				drawLine(g, 0.5f * power + 0.05f, -0.05f, 0.5f * power, 0);
 			}
 		}
-		
-		g.setColor(new Color(0, 0, 255));
-		g.draw(new Line2D.Float(0.0f, 0.0f, 0.0f, lateralVelocity));
+	}
+	
+	private void drawLine(Graphics2D g, float x1, float y1, float x2, float y2) {
+		line.setLine(x1, y1, x2, y2);
+		g.draw(line);
 	}
 
 	@Override
-	public void stepBeforePhysics(float dt) {
-		Vec2 localLateralDir = new Vec2((float)Math.cos((angle + 90.0f) * (float)Math.PI / 180.0f), (float)Math.sin((angle + 90.0f) * (float)Math.PI / 180.0f));
-		
-		velocity = body.getLinearVelocityFromLocalPoint(new Vec2(x, y));
-		localVelocity = body.getLocalVector(velocity);
-		lateralVelocity = Vec2.dot(localVelocity, localLateralDir);
-		
-		//System.out.println("vx: " + velocity.x + "; vy: " + velocity.y + "; lv: " + lateralVelocity);
-		
-		float combinedAngle = (angle * (float)Math.PI / 180.0f) + body.getAngle();
-		
-		float longitudinalForceX = getLongitudinalForce() * (float)Math.cos(combinedAngle);
-		float longitudinalForceY = getLongitudinalForce() * (float)Math.sin(combinedAngle);
-		float lateralForceX = getLateralForce() * (float)Math.cos(combinedAngle + Math.PI / 2.0f);
-		float lateralForceY = getLateralForce() * (float)Math.sin(combinedAngle + Math.PI / 2.0f);
-		
-		// add force offset from center of body
-		Vec2 longitudinalForceVec = new Vec2(longitudinalForceX, longitudinalForceY);
-		Vec2 lateralForceVec = new Vec2(lateralForceX, lateralForceY);
-		Vec2 forcePos = body.getWorldPoint(new Vec2(x, y));
-		
-		body.applyForce(
-			longitudinalForceVec,
-			forcePos
-		);
-		
-		body.applyForce(
-			lateralForceVec,
-			forcePos
-		);
+	public void saveState(Snapshot snapshot) {
+		snapshot.writeFloat(power);
+		snapshot.writeFloat(lateralVelocity);
+		snapshot.writeFloat(localVelocity.x);
+		snapshot.writeFloat(localVelocity.y);
 	}
 
 	@Override
-	public void stepAfterPhysics(float dt) {
-
+	public void restoreState(Snapshot snapshot) {
+		power = snapshot.readFloat();
+		lateralVelocity = snapshot.readFloat();
+		localVelocity.set(snapshot.readFloat(), snapshot.readFloat());
 	}
 }
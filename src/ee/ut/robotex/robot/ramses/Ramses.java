@@ -1,27 +1,32 @@
 package ee.ut.robotex.robot.ramses;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.jbox2d.dynamics.World;
 
-import ee.ut.robotex.renderer.Paintable;
+import ee.ut.robotex.renderer.Overlays;
 import ee.ut.robotex.renderer.Polygon2D;
+import ee.ut.robotex.renderer.RenderResources;
 import ee.ut.robotex.robot.Robot;
 import ee.ut.robotex.robot.components.Coilgun;
 import ee.ut.robotex.robot.components.Dribbler;
+import ee.ut.robotex.robot.components.Drivetrain;
 import ee.ut.robotex.robot.components.Wheel;
 import ee.ut.robotex.robot.sensors.Camera;
+import ee.ut.robotex.simulation.FrameState;
 import ee.ut.robotex.simulation.GameInfo;
 import ee.ut.robotex.simulation.Simulation;
-import ee.ut.robotex.simulation.StepListener;
+import ee.ut.robotex.simulation.Snapshot;
 
 public class Ramses extends Robot {
+	private static final double SQRT_HALF = Math.sqrt(0.5);
+	
 	private Polygon2D outline;
+	private Line2D.Float headingLine;
 	private Camera camera;
 	private Coilgun coilgun;
 	private Dribbler dribbler;
@@ -30,6 +35,7 @@ public class Ramses extends Robot {
 	private Wheel wheelRL;
 	private Wheel wheelRR;
 	private List<Wheel> wheels;
+	private Drivetrain drivetrain;
 	private float edgeWidth = 0.08f;
 	private float sideWidth = 0.27f;
 	private float wheelOffset = 0.06f;
@@ -75,6 +81,8 @@ public class Ramses extends Robot {
 		wheels.add(wheelFR);
 		wheels.add(wheelRL);
 		wheels.add(wheelRR);
+		
+		drivetrain = new Drivetrain(body, wheels);
 	}
 	
 	public String getName() {
@@ -85,6 +93,15 @@ public class Ramses extends Robot {
 		return radius;
 	}
 	
+	@Override
+	public List<Wheel> getWheels() {
+		return wheels;
+	}
+	
+	public Drivetrain getDrivetrain() {
+		return drivetrain;
+	}
+	
 	public Camera getCamera() {
 		return camera;
 	}
@@ -112,46 +129,36 @@ public class Ramses extends Robot {
 	}
 	
 	@Override
-	public void paint(Graphics2D g) {
+	public void paint(Graphics2D g, FrameState frame, int index) {
 		// heading
+		float heading = frame.robotHeading[index];
+		float power = frame.robotPower[index];
 		float headingX = (float)Math.sin(heading);
 		float headingY = -(float)Math.cos(heading);
 		
-		g.setColor(new Color(255, 0, 0));
-		g.draw(new Line2D.Float(0.0f, 0.0f, -headingX * power, headingY * power));
-		
-		g.setColor(new Color(200, 200, 200));
-		g.fill(getOutline());
-		
-		Graphics2D g2 = (Graphics2D)g.create();
-		g2.setStroke(new BasicStroke(0.02f));
-		
-		if (side == Simulation.Side.YELLOW) {
-			g2.setColor(new Color(220, 220, 0, 128));
-		} else {
-			g2.setColor(new Color(0, 0, 220, 128));
-		}
-		
-		g2.draw(getOutline());
-
-		for (Paintable wheel : wheels) {
-			Graphics2D g3 = (Graphics2D)g.create();
+		if (Overlays.isEnabled(g)) {
+			if (headingLine == null) {
+				headingLine = new Line2D.Float();
+			}
 			
-			wheel.paint(g3);
+			g.setColor(RenderResources.HEADING);
+			headingLine.setLine(0.0f, 0.0f, -headingX * power, headingY * power);
+			g.draw(headingLine);
 		}
 		
-		Graphics2D g4 = (Graphics2D)g.create();
-		camera.paint(g4);
+		paintBody(g);
+		
+		AffineTransform transform = g.getTransform();
 		
-		g4 = (Graphics2D)g.create();
-		coilgun.paint(g4);
+		paintWheels(g, transform, frame.wheelPowers[index]);
 		
-		g4 = (Graphics2D)g.create();
-		dribbler.paint(g4);
+		paintPart(g, transform, camera);
+		paintPart(g, transform, coilgun);
+		paintPart(g, transform, dribbler);
 	}
 
 	@Override
-	protected Polygon2D getOutline() {
+	public Polygon2D getOutline() {
 		if (outline == null) {
 			outline = new Polygon2D();
 			
@@ -177,24 +184,58 @@ public class Ramses extends Robot {
 		return outline;
 	}
 
+	@Override
+	public void saveState(Snapshot snapshot) {
+		snapshot.writeFloat(heading);
+		snapshot.writeFloat(power);
+		snapshot.writeFloat(yawRate);
+		snapshot.writeFloat(guessedAngleToGoal);
+		
+		for (Wheel wheel : wheels) {
+			wheel.saveState(snapshot);
+		}
+		
+		camera.saveState(snapshot);
+		coilgun.saveState(snapshot);
+		dribbler.saveState(snapshot);
+	}
+	
+	@Override
+	public void restoreState(Snapshot snapshot) {
+		heading = snapshot.readFloat();
+		power = snapshot.readFloat();
+		yawRate = snapshot.readFloat();
+		guessedAngleToGoal = snapshot.readFloat();
+		
+		for (Wheel wheel : wheels) {
+			wheel.restoreState(snapshot);
+		}
+		
+		camera.restoreState(snapshot);
+		coilgun.restoreState(snapshot);
+		dribbler.restoreState(snapshot);
+	}
+
 	@Override
 	public void stepBeforePhysics(float dt) {
 		float effectiveYawRate = yawRate * 0.3f;
 		float effectivePower = power - effectiveYawRate * Math.signum(power);
 		
-		float powerFL = effectivePower * (float)Math.sin(heading - 1.0f * Math.PI / 4.0f) - effectiveYawRate;
-		float powerRL = effectivePower * (float)Math.sin(heading - 3.0f * Math.PI / 4.0f) - effectiveYawRate;
-		float powerRR = effectivePower * (float)Math.sin(heading - 5.0f * Math.PI / 4.0f) - effectiveYawRate;
-		float powerFR = effectivePower * (float)Math.sin(heading - 7.0f * Math.PI / 4.0f) - effectiveYawRate;
+		// sin(heading - k * PI / 4) for the wheels at odd k, expanded to a single sin and cos
+		float headingSin = (float)(Math.sin(heading) * SQRT_HALF);
+		float headingCos = (float)(Math.cos(heading) * SQRT_HALF);
+		
+		float powerFL = effectivePower * (headingSin - headingCos) - effectiveYawRate;
+		float powerRL = effectivePower * (-headingSin - headingCos) - effectiveYawRate;
+		float powerRR = effectivePower * (headingCos - headingSin) - effectiveYawRate;
+		float powerFR = effectivePower * (headingSin + headingCos) - effectiveYawRate;
 		
 		wheelFL.setPower(powerFL);
 		wheelFR.setPower(powerFR);
 		wheelRL.setPower(powerRL);
 		wheelRR.setPower(powerRR);
 		
-		for (StepListener wheel : wheels) {
-			wheel.stepBeforePhysics(dt);
-		}
+		drivetrain.stepBeforePhysics(dt);
 		
 		camera.stepBeforePhysics(dt);
 		coilgun.stepBeforePhysics(dt);
@@ -207,10 +248,20 @@ public class Ramses extends Robot {
 		this.heading = heading;
 	}
 	
+	@Override
+	public float getHeading() {
+		return heading;
+	}
+	
 	public void setPower(float power) {
 		this.power = power;
 	}
 	
+	@Override
+	public float getPower() {
+		return power;
+	}
+	
 	public void setYawRate(float yawRate) {
 		this.yawRate = yawRate;
 	}
@@ -221,9 +272,7 @@ public class Ramses extends Robot {
 	
 	@Override
 	public void stepAfterPhysics(float dt) {
-		for (StepListener wheel : wheels) {
-			wheel.stepAfterPhysics(dt);
-		}
+		drivetrain.stepAfterPhysics(dt);
 		
 		camera.stepAfterPhysics(dt);
 		coilgun.stepAfterPhysics(dt);
@@ -1,19 +1,24 @@
 package ee.ut.robotex.robot.ramses;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.util.List;
 
+import org.jbox2d.common.Vec2;
+
+import ee.ut.robotex.renderer.LabelCache;
+import ee.ut.robotex.renderer.RenderResources;
 import ee.ut.robotex.robot.RobotController;
 import ee.ut.robotex.robot.sensors.Camera;
 import ee.ut.robotex.simulation.Ball;
+import ee.ut.robotex.simulation.FrameState;
+import ee.ut.robotex.simulation.MatchEvent;
+import ee.ut.robotex.simulation.Restorable;
 import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.simulation.Snapshot;
 
-public class RamsesAI extends RobotController {
+public class RamsesAI extends RobotController implements Restorable {
 
 	// the robot to control
 	private Ramses ramses;
@@ -29,12 +34,30 @@ public class RamsesAI extends RobotController {
 	
 	// list of possible states
 	private enum State {
-		NONE, START, SEARCH_BALL, RELOCATE, FETCH, SEARCH_GOAL
+		NONE, START, SEARCH_BALL, RELOCATE, FETCH, SEARCH_GOAL;
+		
+		// overlay text, made once instead of every frame
+		private final String label = "State: " + name();
+		
+		public String getLabel() {
+			return label;
+		}
 	};
 	
+	// values() makes a new array on every call
+	private static final State[] STATES = State.values();
+	
 	// current state
 	private State state;
 	
+	// reused for painting
+	private AffineTransform identity;
+	private LabelCache labels;
+	private String guessedAngleLabel;
+	private int guessedAngleLabelDegrees;
+	private Ellipse2D.Float targetShape;
+	private float ballRadius;
+	
 	// when requesting state, one can also set the next state that some states respect
 	private State nextState = State.NONE;
 	
@@ -95,6 +118,12 @@ public class RamsesAI extends RobotController {
 	public RamsesAI(Ramses ramses) {
 		this.ramses = ramses;
 		
+		List<Ball> balls = ramses.getGameInfo().getBalls();
+		
+		if (!balls.isEmpty()) {
+			ballRadius = balls.get(0).getRadius();
+		}
+		
 		// always change state with this method to restart state duration timer
 		setState(State.START);
 	}
@@ -147,6 +176,12 @@ public class RamsesAI extends RobotController {
 	}
 	
 	private void setState(State state, State nextState) {
+		if (state != this.state) {
+			Vec2 position = ramses.getBody().getPosition();
+			
+			ramses.getGameInfo().getEventBus().publish(MatchEvent.Type.STATE_CHANGED, ramses.getSide(), state.ordinal(), position.x, position.y, 0.0f);
+		}
+		
 		this.state = state;
 		this.nextState = nextState;
 		this.stateDuration = 0.0f;
@@ -423,38 +458,108 @@ public class RamsesAI extends RobotController {
 	}
 
 	@Override
-	public void stepAfterPhysics(float dt) {
+	public void saveState(Snapshot snapshot) {
+		snapshot.writeFloat(duration);
+		snapshot.writeFloat(stateDuration);
+		snapshot.writeBoolean(stateReady);
+		snapshot.writeInt(state.ordinal());
+		snapshot.writeInt(nextState.ordinal());
+		snapshot.writeFloat(closestBallDistance);
+		snapshot.writeInt(targetId);
+		snapshot.writeInt(realTargetId);
+		snapshot.writeFloat(targetGoalSightDuration);
+		snapshot.writeFloat(lastBallSearchDir);
+		snapshot.writeFloat(currentBallSearchDir);
+		snapshot.writeFloat(lastRelocateHeading);
+		snapshot.writeFloat(currentRelocateHeading);
+		snapshot.writeFloat(searchYawDir);
+	}
 
+	@Override
+	public void restoreState(Snapshot snapshot) {
+		duration = snapshot.readFloat();
+		stateDuration = snapshot.readFloat();
+		stateReady = snapshot.readBoolean();
+		state = STATES[snapshot.readInt()];
+		nextState = STATES[snapshot.readInt()];
+		closestBallDistance = snapshot.readFloat();
+		targetId = snapshot.readInt();
+		realTargetId = snapshot.readInt();
+		targetGoalSightDuration = snapshot.readFloat();
+		lastBallSearchDir = snapshot.readFloat();
+		currentBallSearchDir = snapshot.readFloat();
+		lastRelocateHeading = snapshot.readFloat();
+		currentRelocateHeading = snapshot.readFloat();
+		searchYawDir = snapshot.readFloat();
 	}
 
 	@Override
-	public void paint(Graphics2D g) {
-		// create graphics with reset transform
-		Graphics2D g2 = (Graphics2D)g.create();
-		g2.setTransform(new AffineTransform());
-		
-		g2.setColor(new Color(255, 255, 255));
-		g2.setFont(new Font("Consolas", Font.PLAIN, 12));
-		g2.drawString("State: " + state, 160.0f, 20.0f);
-		g2.drawString("Guessed angle: " + ramses.getGuessedAngleToGoal(), 160.0f, 42.0f);
-		
-		// highlight the ball we're after
-		if (state == State.FETCH && realTargetId != -1) {
-			Ball ball = ramses.getGameInfo().getBallById(realTargetId);
-			
-			if (ball != null) {
-				float radius = ball.getRadius();
-				
-				g.setStroke(new BasicStroke(0.02f));
+	public void stepAfterPhysics(float dt) {
 
-				if (ramses.getSide() == Simulation.Side.YELLOW) {
-					g.setColor(new Color(220, 220, 0));
-				} else {
-					g.setColor(new Color(0, 0, 220));
-				}
-				
-				g.draw(new Ellipse2D.Float(ball.getX() - radius, ball.getY() - radius, radius * 2.0f, radius * 2.0f));
+	}
+
+	@Override
+	public void captureFrame(FrameState frame, int index) {
+		frame.controllerState[index] = state.ordinal();
+		frame.controllerTargetBall[index] = state == State.FETCH ? getBallIndex(realTargetId) : -1;
+		frame.controllerGoalAngle[index] = ramses.getGuessedAngleToGoal();
+	}
+	
+	// index of the ball in the frame's ball arrays, which are in the order of getBalls()
+	private int getBallIndex(int ballId) {
+		List<Ball> balls = ramses.getGameInfo().getBalls();
+		
+		for (int i = 0; i < balls.size(); i++) {
+			if (balls.get(i).getId() == ballId) {
+				return i;
 			}
 		}
+		
+		return -1;
+	}
+	
+	// whole degrees so the label only changes when the angle has changed visibly
+	private String getGuessedAngleLabel(float guessedAngle) {
+		int degrees = Math.round(guessedAngle);
+		
+		if (guessedAngleLabel == null || degrees != guessedAngleLabelDegrees) {
+			guessedAngleLabel = "Guessed angle: " + degrees;
+			guessedAngleLabelDegrees = degrees;
+		}
+		
+		return guessedAngleLabel;
+	}
+	
+	@Override
+	public void paint(Graphics2D g, FrameState frame, int index) {
+		if (labels == null) {
+			identity = new AffineTransform();
+			labels = new LabelCache(32);
+			targetShape = new Ellipse2D.Float();
+		}
+		
+		// labels are drawn in screen space
+		AffineTransform transform = g.getTransform();
+		g.setTransform(identity);
+		
+		g.setColor(RenderResources.WHITE);
+		g.setFont(RenderResources.OVERLAY_FONT);
+		labels.draw(g, STATES[frame.controllerState[index]].getLabel(), 160.0f, 20.0f);
+		labels.draw(g, getGuessedAngleLabel(frame.controllerGoalAngle[index]), 160.0f, 42.0f);
+		g.setTransform(transform);
+		
+		// highlight the ball we're after where it is in the frame being drawn
+		int target = frame.controllerTargetBall[index];
+		
+		if (target != -1 && target < frame.ballCount) {
+			float x = frame.ballX[target];
+			float y = frame.ballY[target];
+			
+			g.setStroke(RenderResources.OUTLINE_STROKE);
+			g.setColor(RenderResources.getSideColor(ramses.getSide()));
+			
+			targetShape.setFrame(x - ballRadius, y - ballRadius, ballRadius * 2.0f, ballRadius * 2.0f);
+			g.draw(targetShape);
+		}
 	}
 }
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.simulation.FrameState;
 
 public class RamsesManualController extends RobotController implements KeyListener, MouseListener {
 	private Ramses ramses;
@@ -194,7 +195,7 @@ public class RamsesManualController extends RobotController implements KeyListen
 	}
 	
 	@Override
-	public void paint(Graphics2D g) {
+	public void paint(Graphics2D g, FrameState frame, int index) {
 		// TODO Auto-generated method stub
 		
 	}
@@ -1,30 +1,36 @@
 package ee.ut.robotex.robot.sensors;
 
-import java.awt.Color;
-import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jbox2d.common.MathUtils;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 
+import ee.ut.robotex.renderer.LabelCache;
+import ee.ut.robotex.renderer.Overlays;
 import ee.ut.robotex.renderer.Paintable;
 import ee.ut.robotex.renderer.Polygon2D;
+import ee.ut.robotex.renderer.RenderResources;
 import ee.ut.robotex.robot.Robot;
 import ee.ut.robotex.simulation.Ball;
+import ee.ut.robotex.simulation.BallQuery;
 import ee.ut.robotex.simulation.GameInfo;
 import ee.ut.robotex.simulation.Goal;
+import ee.ut.robotex.simulation.Restorable;
 import ee.ut.robotex.simulation.Simulation;
+import ee.ut.robotex.simulation.Snapshot;
 import ee.ut.robotex.simulation.StepListener;
+import ee.ut.robotex.util.ConvexPolygon;
 
-public class Camera implements StepListener, Paintable {
+public class Camera implements StepListener, Paintable, Restorable {
 	protected Body body;
 	protected GameInfo game;
 	protected float x;
@@ -33,17 +39,41 @@ public class Camera implements StepListener, Paintable {
 	protected float angleOfView;
 	protected float distance;
 	protected Polygon2D view;
-	protected List<BallInfo> visibleBalls;
-	protected List<GoalInfo> visibleGoals;
+	private Arc2D positionArc;
+	private Ellipse2D.Float detectionShape;
+	private StringBuilder labelText = new StringBuilder();
+	private Label[] ballLabels = new Label[0];
+	private Label[] goalLabels = new Label[] { new Label(), new Label() };
+	private LabelCache labelCache;
 	protected int lastVirtualId = 0;
+	private ConvexPolygon globalView;
+	private AtomicReference<Frame> published = new AtomicReference<Frame>();
+	private List<Frame> framePool = new ArrayList<Frame>();
+	private long frameSequence = 0;
+	private BallQuery ballsInView = new BallQuery();
+	private int[] lastVirtualIds = new int[16];
+	private int[] lastSeenStep = new int[16];
+	private int detectionStep = 0;
+	private Vec2 localPos = new Vec2();
+	private Vec2 worldPos = new Vec2();
+	private Vec2 cameraPos = new Vec2();
+	private Vec2 forwardVec = new Vec2();
+	private Vec2 targetPos = new Vec2();
+	private Vec2 targetHeading = new Vec2();
 	
 	public class BallInfo {
 		private int realId;
 		public int id;
 		public float distance;
 		public float angle;
+		private float x;
+		private float y;
 		
 		public BallInfo(int realId, int virtualId, float distance, float angle) {
+			set(realId, virtualId, distance, angle);
+		}
+		
+		private void set(int realId, int virtualId, float distance, float angle) {
 			this.realId = realId;
 			this.id = virtualId;
 			this.distance = distance;
@@ -55,6 +85,15 @@ public class Camera implements StepListener, Paintable {
 		public int _getRealId() {
 			return realId;
 		}
+		
+		// where the ball was when detected, for drawing only
+		public float _getX() {
+			return x;
+		}
+		
+		public float _getY() {
+			return y;
+		}
 	}
 	
 	public class GoalInfo {
@@ -63,23 +102,98 @@ public class Camera implements StepListener, Paintable {
 		public float angle;
 		
 		public GoalInfo(Simulation.Side side, float distance, float angle) {
+			set(side, distance, angle);
+		}
+		
+		private void set(Simulation.Side side, float distance, float angle) {
 			this.side = side;
 			this.distance = distance;
 			this.angle = angle;
 		}
 	}
 	
+	// text of a detection label, kept until the rounded values shown in it change
+	private static class Label {
+		private int id;
+		private int distance;
+		private int angle;
+		private String text;
+	}
+	
+	// a published frame never changes while anybody can read it, the camera fills a free
+	// frame from its pool and swaps it in once complete
+	public class Frame {
+		private final AtomicInteger readers = new AtomicInteger();
+		private long sequence = 0;
+		private float bodyX;
+		private float bodyY;
+		private float bodyAngle;
+		private List<BallInfo> balls = new ArrayList<BallInfo>();
+		private List<GoalInfo> goals = new ArrayList<GoalInfo>(2);
+		private List<BallInfo> ballsView = Collections.unmodifiableList(balls);
+		private List<GoalInfo> goalsView = Collections.unmodifiableList(goals);
+		private List<BallInfo> ballPool = new ArrayList<BallInfo>();
+		private List<GoalInfo> goalPool = new ArrayList<GoalInfo>(2);
+		
+		public long getSequence() {
+			return sequence;
+		}
+		
+		public List<BallInfo> getBalls() {
+			return ballsView;
+		}
+		
+		public List<GoalInfo> getGoals() {
+			return goalsView;
+		}
+		
+		// gives back a frame got from acquireFrame()
+		public void release() {
+			readers.decrementAndGet();
+		}
+		
+		private void clear() {
+			balls.clear();
+			goals.clear();
+			
+			bodyX = body.getPosition().x;
+			bodyY = body.getPosition().y;
+			bodyAngle = body.getAngle();
+		}
+		
+		private void addBall(int realId, int virtualId, float distance, float angle, float x, float y) {
+			if (balls.size() == ballPool.size()) {
+				ballPool.add(new BallInfo(realId, virtualId, distance, angle));
+			}
+			
+			BallInfo ball = ballPool.get(balls.size());
+			
+			ball.set(realId, virtualId, distance, angle);
+			ball.x = x;
+			ball.y = y;
+			balls.add(ball);
+		}
+		
+		private void addGoal(Simulation.Side side, float distance, float angle) {
+			if (goals.size() == goalPool.size()) {
+				goalPool.add(new GoalInfo(side, distance, angle));
+			}
+			
+			GoalInfo goal = goalPool.get(goals.size());
+			
+			goal.set(side, distance, angle);
+			goals.add(goal);
+		}
+	}
+	
 	public Camera(Body body, GameInfo game, float x, float y, float angle, float angleOfView, float distance) {
 		this.body = body;
 		this.game = game;
 		this.x = x;
 		this.y = y;
 		
-		// these lists are updated and traversed in different threads..
-		this.visibleBalls = new CopyOnWriteArrayList<BallInfo>();
-		this.visibleGoals = new CopyOnWriteArrayList <GoalInfo>();
-		
 		update(angle, angleOfView, distance);
+		publish(obtainFrame());
 	}
 	
 	public void update(float angle, float angleOfView, float distance) {
@@ -87,6 +201,9 @@ public class Camera implements StepListener, Paintable {
 		this.angleOfView = angleOfView;
 		this.distance = distance;
 		
+		// built from the new values on the next paint
+		positionArc = null;
+		
 		view = new Polygon2D();
 		
 		view.addPoint(0,  0);
@@ -100,58 +217,129 @@ public class Camera implements StepListener, Paintable {
 			distance * (float)Math.cos((angleOfView / 2.0f + angle - 90.0f) * Math.PI / 180.0f),
 			distance * (float)Math.sin((angleOfView / 2.0f + angle - 90.0f) * Math.PI / 180.0f)
 		);
+		
+		// moved to world coordinates in place every step
+		globalView = new ConvexPolygon(view.npoints);
+	}
+	
+	// for the simulation thread, unchanged until the camera steps again
+	public Frame getFrame() {
+		return published.get();
+	}
+	
+	// for any thread, unchanged until released, the camera never waits for it
+	public Frame acquireFrame() {
+		while (true) {
+			Frame frame = published.get();
+			
+			frame.readers.incrementAndGet();
+			
+			// the frame may have been replaced and taken for refilling meanwhile
+			if (published.get() == frame) {
+				return frame;
+			}
+			
+			frame.readers.decrementAndGet();
+		}
 	}
 	
 	public List<BallInfo> getVisibleBalls() {
-		return visibleBalls;
+		return getFrame().getBalls();
 	}
 	
 	public List<GoalInfo> getVisibleGoals() {
-		return visibleGoals;
+		return getFrame().getGoals();
 	}
 
 	@Override
 	public void paint(Graphics2D g) {
-		Graphics2D g2 = (Graphics2D)g.create();
-		g2.translate(x, y);
-				
-		g2.setColor(new Color(255, 255, 255, 20));
-		g2.fill(view);
+		AffineTransform transform = g.getTransform();
+		
+		if (labelCache == null) {
+			detectionShape = new Ellipse2D.Float();
+			labelCache = new LabelCache(64);
+		}
+		
+		g.translate(x, y);
+		g.setColor(RenderResources.CAMERA_VIEW);
+		g.fill(view);
+		g.setTransform(transform);
 		
 		// draw camera position arc
-		float arcRadius = 0.1f;
-		g.setColor(new Color(255, 255, 255, 100));
-		g.fill(new Arc2D.Float(-arcRadius + x, -arcRadius + y, arcRadius * 2.0f, arcRadius * 2.0f, -angleOfView / 2.0f - angle + 90.0f, angleOfView, Arc2D.PIE));
+		Arc2D arc = positionArc;
+		
+		if (arc == null) {
+			float arcRadius = 0.1f;
+			
+			arc = new Arc2D.Float(-arcRadius + x, -arcRadius + y, arcRadius * 2.0f, arcRadius * 2.0f, -angleOfView / 2.0f - angle + 90.0f, angleOfView, Arc2D.PIE);
+			positionArc = arc;
+		}
+		
+		g.setColor(RenderResources.CAMERA_POSITION);
+		g.fill(arc);
+		
+		Frame frame = acquireFrame();
+		
+		try {
+			// to display visible balls, we have to get back to global coordinates
+			// using the pose the detections were made from
+			g.rotate(-frame.bodyAngle);
+			g.translate(-frame.bodyX, -frame.bodyY);
+			
+			paintFrame(g, frame);
+		} finally {
+			frame.release();
+			
+			g.setTransform(transform);
+		}
+	}
+	
+	private void paintFrame(Graphics2D g3, Frame frame) {
+		boolean labels = Overlays.isEnabled(g3);
+		Robot robot = (Robot)body.getUserData();
+		float radius = 0.075f;
 		
-		// to display visible balls, we have to get back to global coordinates
-		Graphics2D g3 = (Graphics2D)g.create();
-		g3.rotate(-body.getAngle());
-		g3.translate(-body.getPosition().x, -body.getPosition().y);
+		g3.setFont(RenderResources.LABEL_FONT);
 		
-		for (BallInfo ballInfo : visibleBalls) {
-			Ball ball = game.getBallById(ballInfo.realId);
+		if (ballLabels.length < frame.balls.size()) {
+			Label[] grown = new Label[frame.balls.size()];
 			
-			float radius = 0.075f;
+			System.arraycopy(ballLabels, 0, grown, 0, ballLabels.length);
+			
+			for (int i = ballLabels.length; i < grown.length; i++) {
+				grown[i] = new Label();
+			}
 			
-			Robot robot = (Robot)body.getUserData();
+			ballLabels = grown;
+		}
+		
+		for (int i = 0; i < frame.balls.size(); i++) {
+			BallInfo ballInfo = frame.balls.get(i);
 			
 			if (robot.getSide() == Simulation.Side.YELLOW) {
-				g3.setColor(new Color(255, 255, 0, 50));
+				g3.setColor(RenderResources.YELLOW_DETECTION);
 			} else {
-				g3.setColor(new Color(0, 0, 255, 50));
+				g3.setColor(RenderResources.BLUE_DETECTION);
 			}
 			
-			g3.fill(new Ellipse2D.Float(ball.getX() - radius, ball.getY() - radius, radius * 2.0f, radius * 2.0f));
+			detectionShape.setFrame(ballInfo.x - radius, ballInfo.y - radius, radius * 2.0f, radius * 2.0f);
+			g3.fill(detectionShape);
+			
+			if (!labels) {
+				continue;
+			}
 			
-			g3.setFont((new Font("Consolas", Font.PLAIN, 1)).deriveFont(0.1f));
-			g3.setColor(new Color(255, 255, 255));
-			g3.drawString(
-				"#" + Integer.toString(ballInfo.id) + " - " + Long.toString(Math.round(ballInfo.distance * 100.0f)) + "cm / " + Long.toString(Math.round(ballInfo.angle / Math.PI * 180.0f)) + "",
-				ball.getX(),
-				ball.getY() - 0.1f
-			);
+			String label = getLabel(ballLabels[i], ballInfo.id, ballInfo.distance, ballInfo.angle);
+			
+			g3.setColor(RenderResources.WHITE);
+			labelCache.draw(g3, label, ballInfo.x, ballInfo.y - 0.1f);
 		}
-		for (GoalInfo goalInfo : visibleGoals) {
+		
+		for (GoalInfo goalInfo : frame.goals) {
+			if (!labels) {
+				break;
+			}
+			
 			Goal goal = null;
 			
 			if (goalInfo.side == Simulation.Side.YELLOW) {
@@ -160,99 +348,217 @@ public class Camera implements StepListener, Paintable {
 				goal = game.getBlueGoal();
 			}
 			
-			/*
-			float width = 0.33f;
-			float height = 0.78f;
+			String label = getLabel(goalLabels[goalInfo.side.ordinal()], -1, goalInfo.distance, goalInfo.angle);
 			
-			g3.setColor(new Color(255, 255, 255, 100));
-			g3.fill(new Rectangle2D.Float(goal.getBody().getPosition().x - width / 2.0f, goal.getBody().getPosition().y - height / 2.0f, width, height));
-			*/
+			g3.setColor(RenderResources.WHITE);
+			labelCache.draw(g3, label, goal.getBody().getPosition().x, goal.getBody().getPosition().y - 0.2f);
+		}
+	}
+	
+	// goal labels have no id, -1
+	private String getLabel(Label label, int id, float distance, float angle) {
+		int centimeters = Math.round(distance * 100.0f);
+		int degrees = (int)Math.round(angle / Math.PI * 180.0f);
+		
+		if (label.text == null || label.id != id || label.distance != centimeters || label.angle != degrees) {
+			labelText.setLength(0);
 			
-			g3.setFont((new Font("Consolas", Font.PLAIN, 1)).deriveFont(0.1f));
-			g3.setColor(new Color(255, 255, 255));
-			g3.drawString(
-				Long.toString(Math.round(goalInfo.distance * 100.0f)) + "cm / " + Long.toString(Math.round(goalInfo.angle / Math.PI * 180.0f)) + "",
-				goal.getBody().getPosition().x,
-				goal.getBody().getPosition().y - 0.2f
-			);
+			if (id != -1) {
+				labelText.append('#').append(id).append(" - ");
+			}
+			
+			labelText.append(centimeters).append("cm / ").append(degrees).append('');
+			
+			label.id = id;
+			label.distance = centimeters;
+			label.angle = degrees;
+			label.text = labelText.toString();
 		}
+		
+		return label.text;
 	}
 
 	@Override
-	public void stepBeforePhysics(float dt) {
-		Map<Integer, Integer> lastIds = new HashMap<Integer, Integer>();
+	public void saveState(Snapshot snapshot) {
+		Frame frame = published.get();
+		
+		snapshot.writeInt(lastVirtualId);
+		snapshot.writeInt(frame.balls.size());
 		
-		for (BallInfo ball : visibleBalls) {
-			lastIds.put(ball.realId, ball.id);
+		for (BallInfo ball : frame.balls) {
+			snapshot.writeInt(ball.realId);
+			snapshot.writeInt(ball.id);
+			snapshot.writeFloat(ball.distance);
+			snapshot.writeFloat(ball.angle);
 		}
 		
-		visibleBalls.clear();
-		visibleGoals.clear();
+		snapshot.writeInt(frame.goals.size());
 		
-		Polygon2D globalView = new Polygon2D();
+		for (GoalInfo goal : frame.goals) {
+			snapshot.writeInt(goal.side.ordinal());
+			snapshot.writeFloat(goal.distance);
+			snapshot.writeFloat(goal.angle);
+		}
+	}
+
+	@Override
+	public void restoreState(Snapshot snapshot) {
+		lastVirtualId = snapshot.readInt();
 		
-		for (int i = 0; i < view.npoints; i++) {
-			float localX = view.xpoints[i];
-			float localY = view.ypoints[i];
+		Frame frame = obtainFrame();
+		int ballCount = snapshot.readInt();
+		
+		for (int i = 0; i < ballCount; i++) {
+			int realId = snapshot.readInt();
+			int virtualId = snapshot.readInt();
+			float distance = snapshot.readFloat();
+			float angle = snapshot.readFloat();
+			
+			Ball ball = game.getBallById(realId);
+			
+			frame.addBall(realId, virtualId, distance, angle, ball.getX(), ball.getY());
+		}
+		
+		int goalCount = snapshot.readInt();
+		
+		for (int i = 0; i < goalCount; i++) {
+			Simulation.Side side = Simulation.Side.values()[snapshot.readInt()];
+			float distance = snapshot.readFloat();
+			float angle = snapshot.readFloat();
+			
+			frame.addGoal(side, distance, angle);
+		}
+		
+		publish(frame);
+	}
+
+	@Override
+	public void stepBeforePhysics(float dt) {
+		// the virtual ids of the balls seen in the previous step carry over
+		detectionStep++;
+		
+		Frame lastFrame = published.get();
+		
+		for (int i = 0; i < lastFrame.balls.size(); i++) {
+			BallInfo ball = lastFrame.balls.get(i);
 			
-			Vec2 worldPos = body.getWorldPoint(new Vec2(localX + x, localY + y));
+			rememberVirtualId(ball.realId, ball.id);
+		}
+		
+		Frame frame = obtainFrame();
+		
+		for (int i = 0; i < view.npoints; i++) {
+			localPos.set(view.xpoints[i] + x, view.ypoints[i] + y);
+			body.getWorldPointToOut(localPos, worldPos);
 			
-			globalView.addPoint(worldPos.x, worldPos.y);
+			globalView.setPoint(i, worldPos.x, worldPos.y);
 		}
 		
-		for (Ball ball : game.getBalls()) {
+		globalView.update();
+		
+		localPos.set(x, y);
+		body.getWorldPointToOut(localPos, cameraPos);
+		
+		forwardVec.set((float)Math.cos(body.getAngle()), (float)Math.sin(body.getAngle()));
+		forwardVec.normalize();
+		
+		game.findBallsInPolygon(globalView, ballsInView);
+		
+		for (int i = 0; i < ballsInView.size(); i++) {
+			Ball ball = ballsInView.get(i);
+			
 			// ignore inactive balls
 			if (!ball.isActive()) {
 				continue;
 			}
 			
-			if (globalView.contains(ball.getX(), ball.getY())) {
-				Vec2 ballPos = new Vec2(ball.getX(), ball.getY());
-				Vec2 cameraPos = body.getWorldPoint(new Vec2(x, y));
-				Vec2 forwardVec = new Vec2((float)Math.cos(body.getAngle()), (float)Math.sin(body.getAngle()));
-				Vec2 ballHeading = ballPos.sub(cameraPos);
-				
-				forwardVec.normalize();
-				ballHeading.normalize();
-				
-				float distance = MathUtils.distance(ballPos, cameraPos);
-				float angle = Vec2.dot(ballHeading, forwardVec);
-				
-				int virtualId;
-				
-				if (lastIds.containsKey(ball.getId())) {
-					virtualId = lastIds.get(ball.getId());
-				} else {
-					virtualId = lastVirtualId++;
-				}
-				
-				visibleBalls.add(new BallInfo(ball.getId(), virtualId, distance, angle));
-			}
+			targetPos.set(ball.getX(), ball.getY());
+			
+			float distance = MathUtils.distance(targetPos, cameraPos);
+			float angle = getTargetAngle();
+			
+			frame.addBall(ball.getId(), getVirtualId(ball.getId()), distance, angle, targetPos.x, targetPos.y);
 		}
 		
-		Goal yellowGoal = game.getYellowGoal();
-		Goal blueGoal = game.getBlueGoal();
-
-		List<Goal> goals = new ArrayList<Goal>();
-		goals.add(yellowGoal);
-		goals.add(blueGoal);
-		
-		for (Goal goal : goals) {
-			if (globalView.contains(goal.getBody().getPosition().x, goal.getBody().getPosition().y)) {
-				Vec2 ballPos = new Vec2(goal.getBody().getPosition().x, goal.getBody().getPosition().y);
-				Vec2 cameraPos = body.getWorldPoint(new Vec2(x, y));
-				Vec2 forwardVec = new Vec2((float)Math.cos(body.getAngle()), (float)Math.sin(body.getAngle()));
-				Vec2 ballHeading = ballPos.sub(cameraPos);
-				
-				forwardVec.normalize();
-				ballHeading.normalize();
-				
-				float distance = MathUtils.distance(ballPos, cameraPos);
-				float angle = Vec2.dot(ballHeading, forwardVec);
+		detectGoal(game.getYellowGoal(), frame);
+		detectGoal(game.getBlueGoal(), frame);
+		
+		publish(frame);
+	}
+	
+	private void detectGoal(Goal goal, Frame frame) {
+		Vec2 goalPos = goal.getBody().getPosition();
+		
+		if (globalView.contains(goalPos.x, goalPos.y)) {
+			targetPos.set(goalPos.x, goalPos.y);
+			
+			float distance = MathUtils.distance(targetPos, cameraPos);
+			float angle = getTargetAngle();
+			
+			frame.addGoal(goal.getSide(), distance, angle);
+		}
+	}
+	
+	// dot product of the forward direction and the direction towards the target
+	private float getTargetAngle() {
+		targetHeading.set(targetPos).subLocal(cameraPos);
+		targetHeading.normalize();
+		
+		return Vec2.dot(targetHeading, forwardVec);
+	}
+	
+	private void rememberVirtualId(int realId, int virtualId) {
+		if (realId >= lastVirtualIds.length) {
+			int length = Math.max(realId + 1, lastVirtualIds.length * 2);
+			int[] virtualIds = new int[length];
+			int[] seenSteps = new int[length];
+			
+			System.arraycopy(lastVirtualIds, 0, virtualIds, 0, lastVirtualIds.length);
+			System.arraycopy(lastSeenStep, 0, seenSteps, 0, lastSeenStep.length);
+			
+			lastVirtualIds = virtualIds;
+			lastSeenStep = seenSteps;
+		}
+		
+		lastVirtualIds[realId] = virtualId;
+		lastSeenStep[realId] = detectionStep;
+	}
+	
+	private int getVirtualId(int realId) {
+		if (realId < lastSeenStep.length && lastSeenStep[realId] == detectionStep) {
+			return lastVirtualIds[realId];
+		}
+		
+		return lastVirtualId++;
+	}
+	
+	// usually the previously published frame, a new one is only made when a reader holds on to it
+	private Frame obtainFrame() {
+		Frame current = published.get();
+		
+		for (int i = 0; i < framePool.size(); i++) {
+			Frame frame = framePool.get(i);
+			
+			// a reader acquiring it after this check sees it is not published and backs off
+			if (frame != current && frame.readers.get() == 0) {
+				frame.clear();
 				
-				visibleGoals.add(new GoalInfo(goal.getSide(), distance, angle));
+				return frame;
 			}
 		}
+		
+		Frame frame = new Frame();
+		
+		frame.clear();
+		framePool.add(frame);
+		
+		return frame;
+	}
+	
+	private void publish(Frame frame) {
+		frame.sequence = ++frameSequence;
+		
+		published.set(frame);
 	}
 
 	@Override
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.StringTokenizer;
 
 import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.simulation.FrameState;
 
 /**
  * This controller starts up a TCP server which listens to connections on a given port.
@@ -120,7 +121,7 @@ public class NetController extends RobotController {
 	}
 
 	@Override
-	public void paint(Graphics2D g) {
+	public void paint(Graphics2D g, FrameState frame, int index) {
 		// TODO Auto-generated method stub
 		
 	}
@@ -1,24 +1,24 @@
 package ee.ut.robotex.robot.telliskivi;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.jbox2d.dynamics.World;
 
-import ee.ut.robotex.renderer.Paintable;
 import ee.ut.robotex.renderer.Polygon2D;
 import ee.ut.robotex.robot.components.Coilgun;
 import ee.ut.robotex.robot.components.Dribbler;
+import ee.ut.robotex.robot.components.Drivetrain;
 import ee.ut.robotex.robot.components.Wheel;
 import ee.ut.robotex.robot.sensors.Camera;
 import ee.ut.robotex.robot.sensors.Camera.BallInfo;
 import ee.ut.robotex.robot.sensors.Camera.GoalInfo;
+import ee.ut.robotex.simulation.FrameState;
 import ee.ut.robotex.simulation.GameInfo;
 import ee.ut.robotex.simulation.Simulation;
-import ee.ut.robotex.simulation.StepListener;
+import ee.ut.robotex.simulation.Snapshot;
 
 /**
  * The telliskivi robot is basically the same as Ramses, but has a different outline
@@ -33,6 +33,7 @@ public class Robot extends ee.ut.robotex.robot.Robot {
 	private Wheel wheelLeft;
 	private Wheel wheelRight;
 	private List<Wheel> wheels;
+	private Drivetrain drivetrain;
 	
 	// General shape
 	private float frontEdgeForward = 0.085f;
@@ -85,6 +86,8 @@ public class Robot extends ee.ut.robotex.robot.Robot {
 		wheelRight.depth = 0.008f;
 		wheels.add(wheelLeft);
 		wheels.add(wheelRight);
+		
+		drivetrain = new Drivetrain(body, wheels);
 	}
 	
 	public String getName() {
@@ -95,6 +98,15 @@ public class Robot extends ee.ut.robotex.robot.Robot {
 		return radius;
 	}
 	
+	@Override
+	public List<Wheel> getWheels() {
+		return wheels;
+	}
+	
+	public Drivetrain getDrivetrain() {
+		return drivetrain;
+	}
+	
 	public Camera getCamera() {
 		return camera;
 	}
@@ -108,39 +120,20 @@ public class Robot extends ee.ut.robotex.robot.Robot {
 	}
 		
 	@Override
-	public void paint(Graphics2D g) {
-		g.setColor(new Color(200, 200, 200));
-		g.fill(getOutline());
-		
-		Graphics2D g2 = (Graphics2D)g.create();
-		g2.setStroke(new BasicStroke(0.02f));
+	public void paint(Graphics2D g, FrameState frame, int index) {
+		paintBody(g);
 		
-		if (side == Simulation.Side.YELLOW) {
-			g2.setColor(new Color(220, 220, 0, 128));
-		} else {
-			g2.setColor(new Color(0, 0, 220, 128));
-		}
+		AffineTransform transform = g.getTransform();
 		
-		g2.draw(getOutline());
-
-		for (Paintable wheel : wheels) {
-			Graphics2D g3 = (Graphics2D)g.create();
-			
-			wheel.paint(g3);
-		}
+		paintWheels(g, transform, frame.wheelPowers[index]);
 		
-		Graphics2D g4 = (Graphics2D)g.create();
-		camera.paint(g4);
-		
-		g4 = (Graphics2D)g.create();
-		coilgun.paint(g4);
-		
-		g4 = (Graphics2D)g.create();
-		dribbler.paint(g4);
+		paintPart(g, transform, camera);
+		paintPart(g, transform, coilgun);
+		paintPart(g, transform, dribbler);
 	}
 
 	@Override
-	protected Polygon2D getOutline() {
+	public Polygon2D getOutline() {
 		if (outline == null) {
 			outline = new Polygon2D();
 			
@@ -164,14 +157,40 @@ public class Robot extends ee.ut.robotex.robot.Robot {
 		return outline;
 	}
 
+	@Override
+	public void saveState(Snapshot snapshot) {
+		snapshot.writeFloat(leftWheelPower);
+		snapshot.writeFloat(rightWheelPower);
+		
+		for (Wheel wheel : wheels) {
+			wheel.saveState(snapshot);
+		}
+		
+		camera.saveState(snapshot);
+		coilgun.saveState(snapshot);
+		dribbler.saveState(snapshot);
+	}
+	
+	@Override
+	public void restoreState(Snapshot snapshot) {
+		leftWheelPower = snapshot.readFloat();
+		rightWheelPower = snapshot.readFloat();
+		
+		for (Wheel wheel : wheels) {
+			wheel.restoreState(snapshot);
+		}
+		
+		camera.restoreState(snapshot);
+		coilgun.restoreState(snapshot);
+		dribbler.restoreState(snapshot);
+	}
+
 	@Override
 	public void stepBeforePhysics(float dt) {
 		wheelLeft.setPower(leftWheelPower);
 		wheelRight.setPower(rightWheelPower);
 		
-		for (StepListener wheel : wheels) {
-			wheel.stepBeforePhysics(dt);
-		}
+		drivetrain.stepBeforePhysics(dt);
 		
 		camera.stepBeforePhysics(dt);
 		coilgun.stepBeforePhysics(dt);
@@ -180,9 +199,7 @@ public class Robot extends ee.ut.robotex.robot.Robot {
 	
 	@Override
 	public void stepAfterPhysics(float dt) {
-		for (StepListener wheel : wheels) {
-			wheel.stepAfterPhysics(dt);
-		}
+		drivetrain.stepAfterPhysics(dt);
 		
 		camera.stepAfterPhysics(dt);
 		coilgun.stepAfterPhysics(dt);
@@ -204,14 +221,20 @@ public class Robot extends ee.ut.robotex.robot.Robot {
 
 	/**
 	 * 'Cam' returns, as a string, the list of all visible balls in robot coordinates ("front", "left")
+	 * Called from the network thread so the camera frame is acquired for reading.
 	 */
 	public String cam() {
 		StringBuffer result = new StringBuffer();
-		List<BallInfo> balls = camera.getVisibleBalls();
-		for (BallInfo b: balls) {
-			double forward = b.distance*Math.cos(b.angle);
-			double left = b.distance*Math.sin(b.angle);
-			result.append(forward).append(" ").append(left).append(" ");
+		Camera.Frame frame = camera.acquireFrame();
+		try {
+			List<BallInfo> balls = frame.getBalls();
+			for (BallInfo b: balls) {
+				double forward = b.distance*Math.cos(b.angle);
+				double left = b.distance*Math.sin(b.angle);
+				result.append(forward).append(" ").append(left).append(" ");
+			}
+		} finally {
+			frame.release();
 		}
 		result.append("0 0");
 		return result.toString();
@@ -219,11 +242,16 @@ public class Robot extends ee.ut.robotex.robot.Robot {
 	
 	public String goal() {
 		StringBuffer result = new StringBuffer();
-		List<GoalInfo> goals = camera.getVisibleGoals();
-		for (GoalInfo g: goals) {
-			double forward = g.distance*Math.cos(g.angle);
-			double left = g.distance*Math.sin(g.angle);
-			result.append(g.side).append(" ").append(forward).append(" ").append(left).append(" ");
+		Camera.Frame frame = camera.acquireFrame();
+		try {
+			List<GoalInfo> goals = frame.getGoals();
+			for (GoalInfo g: goals) {
+				double forward = g.distance*Math.cos(g.angle);
+				double left = g.distance*Math.sin(g.angle);
+				result.append(g.side).append(" ").append(forward).append(" ").append(left).append(" ");
+			}
+		} finally {
+			frame.release();
 		}
 		result.append("0 0 0");
 		return result.toString();
@@ -1,10 +1,10 @@
 package ee.ut.robotex.simulation;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Ellipse2D;
 
 import org.jbox2d.collision.shapes.CircleShape;
+import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.BodyDef;
 import org.jbox2d.dynamics.BodyType;
@@ -12,8 +12,9 @@ import org.jbox2d.dynamics.Fixture;
 import org.jbox2d.dynamics.World;
 
 import ee.ut.robotex.renderer.Paintable;
+import ee.ut.robotex.renderer.RenderResources;
 
-public class Ball implements Paintable, StepListener {
+public class Ball implements Paintable, StepListener, Restorable {
 
 	private Body body;
 	private int id;
@@ -23,11 +24,12 @@ public class Ball implements Paintable, StepListener {
 	private float friction = 0.3f;
 	private float angularDamping = 0.5f;
 	private float linearDamping = 0.5f;
-	private static int instances = 0;
 	private boolean isActive = true;
+	private float retiredTime = 0.0f;
+	private Ellipse2D shape;
 	
-	public Ball(World world, float x, float y) {
-		id = instances++;
+	public Ball(World world, int id, float x, float y) {
+		this.id = id;
 		
 		CircleShape shape = new CircleShape();
         shape.m_radius = radius;
@@ -45,6 +47,8 @@ public class Ball implements Paintable, StepListener {
 		fixture.setRestitution(restitution);
 		fixture.setFriction(friction);
 		fixture.setUserData(this);
+		
+		CollisionCategory.apply(fixture, CollisionCategory.BALL, CollisionCategory.BALL_MASK);
 	}
 	
 	public int getId() {
@@ -75,18 +79,60 @@ public class Ball implements Paintable, StepListener {
 		return isActive;
 	}
 	
+	// retired balls are never active
+	public boolean isRetired() {
+		return !body.isActive();
+	}
+	
+	public float getRetiredTime() {
+		return retiredTime;
+	}
+	
+	// ends all of the ball's contacts, must not be called during a world step
+	void retire(float time) {
+		retiredTime = time;
+		
+		body.setLinearVelocity(new Vec2(0.0f, 0.0f));
+		body.setAngularVelocity(0.0f);
+		body.setActive(false);
+	}
+	
+	void returnToPlay(float x, float y) {
+		body.setActive(true);
+		body.setTransform(new Vec2(x, y), 0.0f);
+		body.setAwake(true);
+		
+		isActive = true;
+	}
+	
 	public float distanceTo(float x, float y) {
 		return (float)Math.sqrt(Math.pow(this.getX() - x, 2) + Math.pow(this.getY() - y, 2));
 	}
 	
 	public void paint(Graphics2D g) {
 		if (isActive) {
-			g.setColor(new Color(225, 128, 0));
+			g.setColor(RenderResources.BALL_ACTIVE);
 		} else {
-			g.setColor(new Color(128, 128, 128));
+			g.setColor(RenderResources.BALL_INACTIVE);
+		}
+		
+		if (shape == null) {
+			shape = new Ellipse2D.Float(-radius, -radius, radius * 2.0f, radius * 2.0f);
 		}
 		
-		g.fill(new Ellipse2D.Float(-radius, -radius, radius * 2.0f, radius * 2.0f));
+		g.fill(shape);
+	}
+	
+	@Override
+	public void saveState(Snapshot snapshot) {
+		snapshot.writeBoolean(isActive);
+		snapshot.writeFloat(retiredTime);
+	}
+	
+	@Override
+	public void restoreState(Snapshot snapshot) {
+		isActive = snapshot.readBoolean();
+		retiredTime = snapshot.readFloat();
 	}
 	
 	@Override
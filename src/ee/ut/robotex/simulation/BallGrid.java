@@ -0,0 +1,174 @@
+package ee.ut.robotex.simulation;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import org.jbox2d.common.Vec2;
+
+import ee.ut.robotex.renderer.Polygon2D;
+import ee.ut.robotex.util.ConvexPolygon;
+
+// uniform grid over ball positions, rebuilt by the simulation once per step so sensors only
+// need to test balls in the cells their region touches, balls off the grid go into the
+// nearest edge cell
+public class BallGrid {
+	private float originX;
+	private float originY;
+	private float cellSize;
+	private int columns;
+	private int rows;
+	private int[] cellStart;
+	private int[] cellFill;
+	private int[] cellBalls = new int[0];
+	private int[] ballCell = new int[0];
+	private float[] ballX = new float[0];
+	private float[] ballY = new float[0];
+	private List<Ball> balls;
+
+	public BallGrid(float minX, float minY, float maxX, float maxY, float cellSize) {
+		this.originX = minX;
+		this.originY = minY;
+		this.cellSize = cellSize;
+		this.columns = Math.max(1, (int)Math.ceil((maxX - minX) / cellSize));
+		this.rows = Math.max(1, (int)Math.ceil((maxY - minY) / cellSize));
+		this.cellStart = new int[columns * rows + 1];
+		this.cellFill = new int[columns * rows];
+	}
+
+	// sorts the balls into cells by their current positions
+	public void rebuild(List<Ball> balls) {
+		int count = balls.size();
+
+		this.balls = balls;
+
+		if (ballX.length < count) {
+			cellBalls = new int[count];
+			ballCell = new int[count];
+			ballX = new float[count];
+			ballY = new float[count];
+		}
+
+		for (int i = 0; i < cellStart.length; i++) {
+			cellStart[i] = 0;
+		}
+
+		for (int i = 0; i < count; i++) {
+			Vec2 position = balls.get(i).getBody().getPosition();
+			int cell = getRow(position.y) * columns + getColumn(position.x);
+
+			ballX[i] = position.x;
+			ballY[i] = position.y;
+			ballCell[i] = cell;
+			cellStart[cell + 1]++;
+		}
+
+		for (int i = 0; i < cellFill.length; i++) {
+			cellStart[i + 1] += cellStart[i];
+			cellFill[i] = cellStart[i];
+		}
+
+		for (int i = 0; i < count; i++) {
+			cellBalls[cellFill[ballCell[i]]++] = i;
+		}
+	}
+
+	public void findInBox(float minX, float minY, float maxX, float maxY, BallQuery result) {
+		collect(minX, minY, maxX, maxY, result);
+
+		result.resolve(balls);
+	}
+
+	public void findInCircle(float x, float y, float radius, BallQuery result) {
+		collect(x - radius, y - radius, x + radius, y + radius, result);
+
+		float radiusSquared = radius * radius;
+		int kept = 0;
+
+		for (int i = 0; i < result.size(); i++) {
+			int index = result.getIndex(i);
+			float dx = ballX[index] - x;
+			float dy = ballY[index] - y;
+
+			if (dx * dx + dy * dy <= radiusSquared) {
+				result.setIndex(kept++, index);
+			}
+		}
+
+		result.truncate(kept);
+		result.resolve(balls);
+	}
+
+	public void findInPolygon(Polygon2D polygon, BallQuery result) {
+		Rectangle2D bounds = polygon.getBounds2D();
+
+		if (polygon.npoints <= 2 || bounds == null) {
+			result.clear();
+
+			return;
+		}
+
+		collect((float)bounds.getMinX(), (float)bounds.getMinY(), (float)bounds.getMaxX(), (float)bounds.getMaxY(), result);
+
+		int kept = 0;
+
+		for (int i = 0; i < result.size(); i++) {
+			int index = result.getIndex(i);
+
+			if (polygon.contains(ballX[index], ballY[index])) {
+				result.setIndex(kept++, index);
+			}
+		}
+
+		result.truncate(kept);
+		result.resolve(balls);
+	}
+
+	public void findInPolygon(ConvexPolygon polygon, BallQuery result) {
+		collect(polygon.getMinX(), polygon.getMinY(), polygon.getMaxX(), polygon.getMaxY(), result);
+
+		result.truncate(polygon.filter(ballX, ballY, result.getIndices(), result.size()));
+		result.resolve(balls);
+	}
+
+	// collects the balls of all cells overlapping the box that are inside the box
+	private void collect(float minX, float minY, float maxX, float maxY, BallQuery result) {
+		result.clear();
+
+		if (balls == null) {
+			return;
+		}
+
+		int firstColumn = getColumn(minX);
+		int lastColumn = getColumn(maxX);
+		int firstRow = getRow(minY);
+		int lastRow = getRow(maxY);
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int cell = row * columns + column;
+
+				for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+					int index = cellBalls[i];
+					float x = ballX[index];
+					float y = ballY[index];
+
+					if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+						result.addIndex(index);
+					}
+				}
+			}
+		}
+	}
+
+	private int getColumn(float x) {
+		int column = (int)Math.floor((x - originX) / cellSize);
+
+		return Math.max(0, Math.min(columns - 1, column));
+	}
+
+	private int getRow(float y) {
+		int row = (int)Math.floor((y - originY) / cellSize);
+
+		return Math.max(0, Math.min(rows - 1, row));
+	}
+}
@@ -0,0 +1,76 @@
+package ee.ut.robotex.simulation;
+
+import java.util.List;
+
+// reusable result of a ball region query, see GameInfo.findBallsInPolygon, the balls keep
+// the order of getBalls()
+public class BallQuery {
+	private Ball[] balls = new Ball[16];
+	private int[] indices = new int[16];
+	private int size = 0;
+
+	public int size() {
+		return size;
+	}
+
+	public Ball get(int index) {
+		return balls[index];
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	void addIndex(int index) {
+		if (size == indices.length) {
+			int[] grownIndices = new int[size * 2];
+			Ball[] grownBalls = new Ball[size * 2];
+
+			System.arraycopy(indices, 0, grownIndices, 0, size);
+			System.arraycopy(balls, 0, grownBalls, 0, size);
+
+			indices = grownIndices;
+			balls = grownBalls;
+		}
+
+		indices[size++] = index;
+	}
+
+	int getIndex(int position) {
+		return indices[position];
+	}
+
+	// returns the backing array of the collected indices, valid up to size()
+	int[] getIndices() {
+		return indices;
+	}
+
+	// keeps only the first given number of indices
+	void truncate(int size) {
+		this.size = size;
+	}
+
+	void setIndex(int position, int index) {
+		indices[position] = index;
+	}
+
+	// sorts the collected indices and resolves them to balls
+	void resolve(List<Ball> allBalls) {
+		// results are small and nearly sorted already, insertion sort suits well
+		for (int i = 1; i < size; i++) {
+			int index = indices[i];
+			int j = i - 1;
+
+			while (j >= 0 && indices[j] > index) {
+				indices[j + 1] = indices[j];
+				j--;
+			}
+
+			indices[j + 1] = index;
+		}
+
+		for (int i = 0; i < size; i++) {
+			balls[i] = allBalls.get(indices[i]);
+		}
+	}
+}
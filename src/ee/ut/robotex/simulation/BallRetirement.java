@@ -0,0 +1,13 @@
+package ee.ut.robotex.simulation;
+
+// what happens to a ball once it has been scored, see Simulation.setBallRetirement(),
+// retired balls are deactivated but stay in the world so snapshots and frames keep their
+// layout
+public enum BallRetirement {
+	// scored balls stay dynamic and roll on, the original behavior
+	KEEP,
+	// scored balls are frozen where they entered the goal for the rest of the match
+	FREEZE,
+	// scored balls are frozen and put back on a free spot of the field after a delay
+	RESPAWN
+}
@@ -0,0 +1,124 @@
+package ee.ut.robotex.simulation;
+
+import org.jbox2d.collision.shapes.PolygonShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.Fixture;
+
+// sensor fixture on a robot body that keeps track of the balls touching it, so components
+// such as the dribbler only test the balls near them, the box is larger than the tested
+// area by getMargin() as contacts lag a step behind
+public class BallSensor {
+	// fastest a ball may move relative to the robot and still be tracked in time, in meters
+	// per second
+	public static final float MAX_RELATIVE_SPEED = 6.0f;
+
+	private Body body;
+	private Fixture fixture;
+	private float timeStep = 1.0f / 60.0f;
+	private Vec2 center = new Vec2();
+	private float halfWidth;
+	private float halfHeight;
+	private Ball[] balls = new Ball[8];
+	private int size = 0;
+
+	public BallSensor(Body body) {
+		this.body = body;
+	}
+
+	// places the sensor as a box around given local point, replacing the previous box, ball
+	// centers within the ball radius of the box are tracked
+	public void setBox(float x, float y, float halfWidth, float halfHeight) {
+		if (fixture != null) {
+			// fires the end of the contacts, which empties the tracked balls
+			body.destroyFixture(fixture);
+		}
+
+		size = 0;
+
+		center.set(x, y);
+		this.halfWidth = halfWidth;
+		this.halfHeight = halfHeight;
+
+		PolygonShape shape = new PolygonShape();
+		setAsBox(shape);
+
+		// no density so the mass of the robot stays the same
+		fixture = body.createFixture(shape, 0.0f);
+		fixture.setSensor(true);
+		fixture.setUserData(this);
+
+		CollisionCategory.apply(fixture, CollisionCategory.ROBOT_SENSOR, CollisionCategory.ROBOT_SENSOR_MASK);
+	}
+
+	// sets the time step the margin is made for, called every step by the owner
+	public void setTimeStep(float timeStep) {
+		if (timeStep == this.timeStep) {
+			return;
+		}
+
+		this.timeStep = timeStep;
+
+		if (fixture != null) {
+			setAsBox((PolygonShape)fixture.getShape());
+
+			// the broadphase bounds follow the shape in the next world step of an awake body
+			body.setAwake(true);
+		}
+	}
+
+	public float getMargin() {
+		return MAX_RELATIVE_SPEED * timeStep;
+	}
+
+	public Fixture getFixture() {
+		return fixture;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// returns a ball touching the sensor, the balls are ordered by their id
+	public Ball get(int index) {
+		return balls[index];
+	}
+
+	private void setAsBox(PolygonShape shape) {
+		float margin = getMargin();
+
+		shape.setAsBox(halfWidth + margin, halfHeight + margin, center, 0.0f);
+	}
+
+	void ballEntered(Ball ball) {
+		if (size == balls.length) {
+			Ball[] grown = new Ball[size * 2];
+
+			System.arraycopy(balls, 0, grown, 0, size);
+
+			balls = grown;
+		}
+
+		int i = size;
+
+		while (i > 0 && balls[i - 1].getId() > ball.getId()) {
+			balls[i] = balls[i - 1];
+			i--;
+		}
+
+		balls[i] = ball;
+		size++;
+	}
+
+	void ballLeft(Ball ball) {
+		for (int i = 0; i < size; i++) {
+			if (balls[i] == ball) {
+				System.arraycopy(balls, i + 1, balls, i, size - i - 1);
+
+				balls[--size] = null;
+
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package ee.ut.robotex.simulation;
+
+import org.jbox2d.dynamics.Filter;
+import org.jbox2d.dynamics.Fixture;
+
+// collision filter categories and masks of the fixtures in the simulation, goals and ball
+// sensors only see balls
+public final class CollisionCategory {
+	public static final int WALL = 1 << 0;
+	public static final int GOAL = 1 << 1;
+	public static final int BALL = 1 << 2;
+	public static final int ROBOT = 1 << 3;
+	public static final int ROBOT_SENSOR = 1 << 4;
+
+	public static final int WALL_MASK = BALL | ROBOT;
+	public static final int GOAL_MASK = BALL;
+	public static final int BALL_MASK = WALL | GOAL | BALL | ROBOT | ROBOT_SENSOR;
+	public static final int ROBOT_MASK = WALL | BALL | ROBOT;
+	public static final int ROBOT_SENSOR_MASK = BALL;
+
+	private CollisionCategory() {
+
+	}
+
+	// puts given fixture into a category, colliding only with the categories of the mask,
+	// which must include each other
+	public static void apply(Fixture fixture, int category, int mask) {
+		Filter filter = new Filter();
+
+		filter.categoryBits = category;
+		filter.maskBits = mask;
+
+		fixture.setFilterData(filter);
+	}
+
+	public static int of(Fixture fixture) {
+		return fixture.getFilterData().categoryBits;
+	}
+}
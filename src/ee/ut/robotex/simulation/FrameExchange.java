@@ -0,0 +1,55 @@
+package ee.ut.robotex.simulation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// hands finished frames from the simulation thread to a single reader, such as the
+// renderer, through one atomic swap so neither side waits, frames the reader misses are
+// overwritten
+public class FrameExchange {
+	private static final int INDEX_MASK = 3;
+	private static final int FRESH = 4;
+
+	private final FrameState[] frames = new FrameState[3];
+	private final AtomicInteger middle = new AtomicInteger(1);
+	private int writeIndex = 0;
+	private int readIndex = 2;
+	private volatile long publishedCount = 0;
+
+	public FrameExchange(FrameState template) {
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = new FrameState(template);
+		}
+	}
+
+	// returns the frame to fill next, writer thread only
+	public FrameState getWriteFrame() {
+		return frames[writeIndex];
+	}
+
+	// makes the filled write frame the latest one, writer thread only
+	public void publish() {
+		writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+		publishedCount++;
+	}
+
+	// returns the latest published frame, reader thread only, the frame stays unchanged
+	// until the next call
+	public FrameState getReadFrame() {
+		if ((middle.get() & FRESH) != 0) {
+			readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+		}
+
+		return frames[readIndex];
+	}
+
+	// returns whether a frame newer than the last read one has been published
+	public boolean hasNewFrame() {
+		return (middle.get() & FRESH) != 0;
+	}
+
+	// returns the number of frames published so far, readers can compare it to tell how
+	// many steps they skipped
+	public long getPublishedCount() {
+		return publishedCount;
+	}
+}
@@ -0,0 +1,80 @@
+package ee.ut.robotex.simulation;
+
+// plain copy of everything needed to show one simulation step, allocated once per setup,
+// robot arrays are indexed by YELLOW and BLUE and controller arrays in the order the
+// controllers were added
+public class FrameState {
+	public static final int YELLOW = 0;
+	public static final int BLUE = 1;
+
+	public long step;
+	public float duration;
+	public int yellowScore;
+	public int blueScore;
+	public final int ballCount;
+	public final float[] ballX;
+	public final float[] ballY;
+	public final boolean[] ballActive;
+	public final boolean[] robotPresent = new boolean[2];
+	public final float[] robotX = new float[2];
+	public final float[] robotY = new float[2];
+	public final float[] robotAngle = new float[2];
+	public final float[][] wheelPowers = new float[2][];
+	public final float[] robotHeading = new float[2];
+	public final float[] robotPower = new float[2];
+	public final int controllerCount;
+	public final int[] controllerState;
+	public final int[] controllerTargetBall;
+	public final float[] controllerGoalAngle;
+
+	public FrameState(int ballCount, int yellowWheelCount, int blueWheelCount) {
+		this(ballCount, yellowWheelCount, blueWheelCount, 0);
+	}
+
+	public FrameState(int ballCount, int yellowWheelCount, int blueWheelCount, int controllerCount) {
+		this.ballCount = ballCount;
+		this.ballX = new float[ballCount];
+		this.ballY = new float[ballCount];
+		this.ballActive = new boolean[ballCount];
+		this.wheelPowers[YELLOW] = new float[yellowWheelCount];
+		this.wheelPowers[BLUE] = new float[blueWheelCount];
+		this.controllerCount = controllerCount;
+		this.controllerState = new int[controllerCount];
+		this.controllerTargetBall = new int[controllerCount];
+		this.controllerGoalAngle = new float[controllerCount];
+	}
+
+	// creates a frame with the same dimensions
+	public FrameState(FrameState other) {
+		this(other.ballCount, other.wheelPowers[YELLOW].length, other.wheelPowers[BLUE].length, other.controllerCount);
+
+		copyFrom(other);
+	}
+
+	// copies all values from a frame of the same dimensions
+	public void copyFrom(FrameState other) {
+		step = other.step;
+		duration = other.duration;
+		yellowScore = other.yellowScore;
+		blueScore = other.blueScore;
+
+		System.arraycopy(other.ballX, 0, ballX, 0, ballCount);
+		System.arraycopy(other.ballY, 0, ballY, 0, ballCount);
+		System.arraycopy(other.ballActive, 0, ballActive, 0, ballCount);
+
+		for (int i = 0; i < 2; i++) {
+			robotPresent[i] = other.robotPresent[i];
+			robotX[i] = other.robotX[i];
+			robotY[i] = other.robotY[i];
+			robotAngle[i] = other.robotAngle[i];
+			robotHeading[i] = other.robotHeading[i];
+			robotPower[i] = other.robotPower[i];
+
+			System.arraycopy(other.wheelPowers[i], 0, wheelPowers[i], 0, wheelPowers[i].length);
+		}
+
+		System.arraycopy(other.controllerState, 0, controllerState, 0, controllerCount);
+		System.arraycopy(other.controllerTargetBall, 0, controllerTargetBall, 0, controllerCount);
+		System.arraycopy(other.controllerGoalAngle, 0, controllerGoalAngle, 0, controllerCount);
+	}
+}
@@ -2,7 +2,9 @@ package ee.ut.robotex.simulation;
 
 import java.util.List;
 
+import ee.ut.robotex.renderer.Polygon2D;
 import ee.ut.robotex.robot.Robot;
+import ee.ut.robotex.util.ConvexPolygon;
 
 public interface GameInfo {
 	public List<Ball> getBalls();
@@ -11,4 +13,13 @@ public interface GameInfo {
 	public Goal getYellowGoal();
 	public Goal getBlueGoal();
 	public Ball getBallById(int id);
+	
+	// in world space and in the order of getBalls(), only nearby balls are tested
+	public void findBallsInPolygon(Polygon2D polygon, BallQuery result);
+	
+	// much cheaper per ball, meant for the small convex regions of sensors
+	public void findBallsInPolygon(ConvexPolygon polygon, BallQuery result);
+	public void findBallsInCircle(float x, float y, float radius, BallQuery result);
+	public void findBallsInBox(float minX, float minY, float maxX, float maxY, BallQuery result);
+	public MatchEventBus getEventBus();
 }
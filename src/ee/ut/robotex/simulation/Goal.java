@@ -27,6 +27,8 @@ public class Goal {
         
         fixture.setSensor(true);
         fixture.setUserData(this);
+        
+        CollisionCategory.apply(fixture, CollisionCategory.GOAL, CollisionCategory.GOAL_MASK);
 	}
 	
 	public Body getBody() {
@@ -45,6 +47,10 @@ public class Goal {
 		ballCount--;
 	}
 	
+	public void setBallCount(int ballCount) {
+		this.ballCount = ballCount;
+	}
+	
 	public int getBallCount() {
 		return ballCount;
 	}
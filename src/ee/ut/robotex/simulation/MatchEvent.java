@@ -0,0 +1,85 @@
+package ee.ut.robotex.simulation;
+
+import org.jbox2d.dynamics.Body;
+
+import ee.ut.robotex.robot.Robot;
+
+// a single match event as seen by a subscriber of the MatchEventBus, the instance is reused
+// so copy out the values to keep
+public class MatchEvent {
+	public enum Type {
+		// a ball entered a goal, the side is the goal's, subject the ball id
+		GOAL,
+		// a ball left a goal and no longer counts, subject is the ball id
+		BALL_DEACTIVATED,
+		// a coilgun kicked a ball, subject is the ball id and value the strength
+		KICK,
+		// a dribbler got hold of a ball, subject is the ball id
+		DRIBBLER_ACQUIRED,
+		// a dribbler lost the ball, subject is the ball id
+		DRIBBLER_LOST,
+		// a controller changed its state, subject is the state number
+		STATE_CHANGED,
+		// a retired ball was put back on the field, subject is the ball id
+		BALL_RESPAWNED
+	}
+
+	private static final Type[] TYPES = Type.values();
+	private static final Simulation.Side[] SIDES = Simulation.Side.values();
+
+	long sequence;
+	long step;
+	int type;
+	int side;
+	int subject;
+	float x;
+	float y;
+	float value;
+
+	// returns the side of the robot owning given body, null if it's not a robot
+	public static Simulation.Side sideOf(Body body) {
+		Object userData = body.getUserData();
+
+		return userData instanceof Robot ? ((Robot)userData).getSide() : null;
+	}
+
+	// running number of the published events, dropped events don't get one, see
+	// MatchEventBus.getDroppedCount()
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getStep() {
+		return step;
+	}
+
+	public Type getType() {
+		return TYPES[type];
+	}
+
+	// returns the side the event concerns, null if none
+	public Simulation.Side getSide() {
+		return side >= 0 ? SIDES[side] : null;
+	}
+
+	public int getSubject() {
+		return subject;
+	}
+
+	public float getX() {
+		return x;
+	}
+
+	public float getY() {
+		return y;
+	}
+
+	public float getValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + sequence + " step " + step + " " + getType() + " " + getSide() + " " + subject + " (" + x + ", " + y + ") " + value;
+	}
+}
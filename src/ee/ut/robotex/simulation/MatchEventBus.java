@@ -0,0 +1,204 @@
+package ee.ut.robotex.simulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// preallocated ring buffer of match events written by the simulation thread and read by any
+// number of subscribers at their own pace, when a subscriber falls a whole ring behind new
+// events are dropped and counted
+public class MatchEventBus {
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final int capacity;
+	private final int mask;
+	private final long[] steps;
+	private final int[] types;
+	private final int[] sides;
+	private final int[] subjects;
+	private final float[] xs;
+	private final float[] ys;
+	private final float[] values;
+	private final AtomicLong published = new AtomicLong(0);
+	private volatile Subscription[] subscriptions = new Subscription[0];
+	private long next = 0;
+	private long gate = 0;
+	private long step = 0;
+	private volatile long dropped = 0;
+
+	// reads events in order, create with MatchEventBus.subscribe()
+	public class Subscription {
+		private final AtomicLong cursor;
+		private final MatchEvent event = new MatchEvent();
+
+		private Subscription(long start) {
+			cursor = new AtomicLong(start);
+		}
+
+		// delivers all events published since the last drain, returns their count
+		public int drain(MatchEventListener listener) {
+			long start = cursor.get();
+			long end = published.get();
+
+			for (long sequence = start; sequence < end; sequence++) {
+				int slot = (int)sequence & mask;
+
+				event.sequence = sequence;
+				event.step = steps[slot];
+				event.type = types[slot];
+				event.side = sides[slot];
+				event.subject = subjects[slot];
+				event.x = xs[slot];
+				event.y = ys[slot];
+				event.value = values[slot];
+
+				listener.onEvent(event);
+			}
+
+			// frees the slots for the publisher
+			cursor.lazySet(end);
+
+			return (int)(end - start);
+		}
+
+		public void cancel() {
+			unsubscribe(this);
+		}
+	}
+
+	public MatchEventBus() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	// creates a bus, capacity is rounded up to a power of two
+	public MatchEventBus(int capacity) {
+		this.capacity = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+		this.mask = this.capacity - 1;
+
+		steps = new long[this.capacity];
+		types = new int[this.capacity];
+		sides = new int[this.capacity];
+		subjects = new int[this.capacity];
+		xs = new float[this.capacity];
+		ys = new float[this.capacity];
+		values = new float[this.capacity];
+	}
+
+	// starts receiving events published from now on
+	public synchronized Subscription subscribe() {
+		Subscription subscription = new Subscription(published.get());
+		Subscription[] updated = new Subscription[subscriptions.length + 1];
+
+		System.arraycopy(subscriptions, 0, updated, 0, subscriptions.length);
+		updated[subscriptions.length] = subscription;
+
+		subscriptions = updated;
+
+		return subscription;
+	}
+
+	private synchronized void unsubscribe(Subscription subscription) {
+		int index = -1;
+
+		for (int i = 0; i < subscriptions.length; i++) {
+			if (subscriptions[i] == subscription) {
+				index = i;
+			}
+		}
+
+		if (index == -1) {
+			return;
+		}
+
+		Subscription[] updated = new Subscription[subscriptions.length - 1];
+
+		System.arraycopy(subscriptions, 0, updated, 0, index);
+		System.arraycopy(subscriptions, index + 1, updated, index, updated.length - index);
+
+		subscriptions = updated;
+	}
+
+	// starts a daemon thread that drains a new subscription into given listener every given
+	// number of milliseconds
+	public Thread startDispatcher(final MatchEventListener listener, final long period) {
+		final Subscription subscription = subscribe();
+
+		Thread dispatcher = new Thread("Match event dispatcher") {
+			@Override
+			public void run() {
+				try {
+					while (!isInterrupted()) {
+						subscription.drain(listener);
+
+						Thread.sleep(period);
+					}
+				} catch (InterruptedException e) {
+					// stopped
+				} finally {
+					subscription.cancel();
+				}
+			}
+		};
+
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+
+		return dispatcher;
+	}
+
+	// sets the step number attached to events published from now on, called by the
+	// simulation
+	void setStep(long step) {
+		this.step = step;
+	}
+
+	// publishes an event, simulation thread only, returns false if it was dropped because a
+	// subscriber is too far behind
+	public boolean publish(MatchEvent.Type type, Simulation.Side side, int subject, float x, float y, float value) {
+		if (next - gate >= capacity) {
+			gate = getSlowestCursor();
+
+			if (next - gate >= capacity) {
+				dropped++;
+
+				return false;
+			}
+		}
+
+		int slot = (int)next & mask;
+
+		steps[slot] = step;
+		types[slot] = type.ordinal();
+		sides[slot] = side != null ? side.ordinal() : -1;
+		subjects[slot] = subject;
+		xs[slot] = x;
+		ys[slot] = y;
+		values[slot] = value;
+
+		next++;
+		published.lazySet(next);
+
+		return true;
+	}
+
+	private long getSlowestCursor() {
+		long slowest = next;
+
+		for (Subscription subscription : subscriptions) {
+			slowest = Math.min(slowest, subscription.cursor.get());
+		}
+
+		return slowest;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getPublishedCount() {
+		return published.get();
+	}
+
+	// returns the number of events dropped because a subscriber fell behind
+	public long getDroppedCount() {
+		return dropped;
+	}
+}
@@ -0,0 +1,5 @@
+package ee.ut.robotex.simulation;
+
+public interface MatchEventListener {
+	public void onEvent(MatchEvent event);
+}
@@ -0,0 +1,8 @@
+package ee.ut.robotex.simulation;
+
+// implemented by step listeners that carry state of their own besides the physics bodies,
+// restoreState must read exactly what saveState wrote
+public interface Restorable {
+	public void saveState(Snapshot snapshot);
+	public void restoreState(Snapshot snapshot);
+}
@@ -1,28 +1,38 @@
 package ee.ut.robotex.simulation;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.jbox2d.callbacks.ContactImpulse;
 import org.jbox2d.callbacks.ContactListener;
+import org.jbox2d.callbacks.QueryCallback;
+import org.jbox2d.collision.AABB;
 import org.jbox2d.collision.Manifold;
 import org.jbox2d.collision.shapes.PolygonShape;
 import org.jbox2d.common.Settings;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.Fixture;
 import org.jbox2d.dynamics.World;
 import org.jbox2d.dynamics.contacts.Contact;
 
+import ee.ut.robotex.renderer.Polygon2D;
 import ee.ut.robotex.robot.Robot;
 import ee.ut.robotex.robot.RobotController;
-import ee.ut.robotex.util.FpsCounter;
-import ee.ut.robotex.util.Util;
+import ee.ut.robotex.robot.components.Wheel;
+import ee.ut.robotex.util.ConvexPolygon;
+import ee.ut.robotex.util.RandomSource;
+import ee.ut.robotex.util.RollingMetrics;
 
 public class Simulation implements Runnable, GameInfo, StepListener, ContactListener {
-	private FpsCounter fpsCounter;
-	private World world;
+	private RollingMetrics stepMetrics;
+	private SimulationClock clock;
+	private SimulationWorld world;
 	private List<Ball> balls;
 	private List<StepListener> stepListeners;
 	private List<RobotController> robotControllers;
@@ -34,6 +44,7 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 	private float timewarp = 100.0f;
     private float timeStep = 1.0f / targetFps;
     private float duration = 0.0f;
+    private long stepCount = 0;
     private int velocityAccuracy = 8;
     private int positionAccuracy = 3;
 	private float fieldWidth = 4.5f;
@@ -43,39 +54,101 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 	private float goalDepth = 0.35f;
 	private float wallRestitution = 0.5f;
 	private float wallFriction = 0.3f;
+	private int nextBallId = 0;
+	private RandomSource ballRandom;
+	private Vec2 restoreVec = new Vec2();
+	private boolean restoring = false;
+	private int snapshotFloatCapacity = 64;
+	private int snapshotIntCapacity = 64;
+	private volatile StepProfiler profiler;
+	private volatile StepTelemetry telemetry;
+	private Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<Runnable>();
+	private MatchEventBus eventBus = new MatchEventBus();
+	private BallGrid ballGrid;
+	private List<Body> staticBodies = new ArrayList<Body>();
+	private volatile FrameExchange frameExchange;
+	private BallRetirement ballRetirement = BallRetirement.KEEP;
+	private float ballRespawnDelay = 3.0f;
+	private List<Ball> scoredBalls = new ArrayList<Ball>();
+	private AABB spawnArea = new AABB();
+	private SpawnQuery spawnQuery = new SpawnQuery();
 	
 	public enum Side {
 		YELLOW, BLUE
 	}
 	
-	public Simulation() {
-		fpsCounter = new FpsCounter(100, (int)targetFps);
-		balls = new ArrayList<Ball>();
-		stepListeners = new ArrayList<StepListener>();
-		robotControllers = new ArrayList<RobotController>();
-		
-		stepListeners.add(this);
+	// finds solid fixtures in the way of a ball being put back on the field
+	private static class SpawnQuery implements QueryCallback {
+		private boolean occupied;
+		
+		@Override
+		public boolean reportFixture(Fixture fixture) {
+			if (fixture.isSensor()) {
+				return true;
+			}
+			
+			occupied = true;
+			
+			return false;
+		}
+	}
+	
+	static {
+		// these are global in jbox2d so they are set once for all simulations instead of
+		// in the constructor where parallel matches would race on them
 		
 		// decrease this to avoid "sticky" walls
 		Settings.velocityThreshold = 0.01f;
 		
 		// increase this if your robot has even more sides
 		Settings.maxPolygonVertices = 22;
+	}
+	
+	public Simulation() {
+		this(System.nanoTime());
+	}
+	
+	public Simulation(long seed) {
+		this(new RandomSource(seed));
+	}
+	
+	// balls get their own split stream so other users of the seed don't shift their sequence
+	public Simulation(RandomSource random) {
+		ballRandom = random.split();
+		
+		stepMetrics = new RollingMetrics();
+		clock = new SimulationClock(timeStep);
+		balls = new ArrayList<Ball>();
+		stepListeners = new ArrayList<StepListener>();
+		robotControllers = new ArrayList<RobotController>();
+		
+		stepListeners.add(this);
 		
 		//Vec2 gravity = new Vec2(0, -9.8f);
 		Vec2 gravity = new Vec2(0.0f, 0.0f);
-		world = new World(gravity, true);
+		world = new SimulationWorld(gravity, true);
 		world.setContactListener(this);
 		
 		createWalls();
 		createGoals();
 		createBalls(11);
+		
+		// the margin keeps balls that got into a goal or past the walls in real cells
+		float margin = goalDepth + wallDepth + 0.25f;
+		
+		ballGrid = new BallGrid(-margin, -margin, fieldWidth + margin, fieldHeight + margin, 0.25f);
+		ballGrid.rebuild(balls);
 	}
 	
 	public World getWorld() {
 		return world;
 	}
 	
+	// walls and goals never move, so any thread may read them
+	public List<Body> getStaticBodies() {
+		return Collections.unmodifiableList(staticBodies);
+	}
+	
 	public List<Body> getBodies() {
 		List<Body> bodies = new ArrayList<Body>();
 		
@@ -104,6 +177,47 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 		
 		return null;
 	}
+	
+	@Override
+	public void findBallsInPolygon(Polygon2D polygon, BallQuery result) {
+		ballGrid.findInPolygon(polygon, result);
+	}
+	
+	@Override
+	public void findBallsInPolygon(ConvexPolygon polygon, BallQuery result) {
+		ballGrid.findInPolygon(polygon, result);
+	}
+	
+	@Override
+	public void findBallsInCircle(float x, float y, float radius, BallQuery result) {
+		ballGrid.findInCircle(x, y, radius, result);
+	}
+	
+	@Override
+	public void findBallsInBox(float minX, float minY, float maxX, float maxY, BallQuery result) {
+		ballGrid.findInBox(minX, minY, maxX, maxY, result);
+	}
+
+	public RandomSource getBallRandom() {
+		return ballRandom;
+	}
+	
+	// call before the simulation is started
+	public void setBallRetirement(BallRetirement ballRetirement) {
+		this.ballRetirement = ballRetirement;
+	}
+	
+	public BallRetirement getBallRetirement() {
+		return ballRetirement;
+	}
+	
+	public void setBallRespawnDelay(float seconds) {
+		this.ballRespawnDelay = seconds;
+	}
+	
+	public float getBallRespawnDelay() {
+		return ballRespawnDelay;
+	}
 
 	@Override
 	public Robot getYellowRobot() {
@@ -128,10 +242,64 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 	public void setTargetFps(int targetFps) {
 		this.targetFps = targetFps;
 		this.timeStep = 1.0f / targetFps;
+		
+		clock.setTimeStep(timeStep);
+	}
+	
+	public float getTimeStep() {
+		return timeStep;
 	}
 	
+	// percent of real time, 0 pauses and SimulationClock.UNBOUNDED runs as fast as possible
 	public void setTimewarp(float multiplier) {
 		this.timewarp = multiplier;
+		
+		clock.setTimewarp(multiplier);
+	}
+	
+	public float getTimewarp() {
+		return timewarp;
+	}
+	
+	public SimulationClock getClock() {
+		return clock;
+	}
+	
+	// enabling starts with empty statistics
+	public void setProfilingEnabled(boolean enabled) {
+		profiler = enabled ? new StepProfiler() : null;
+	}
+	
+	public StepProfiler getProfiler() {
+		return profiler;
+	}
+	
+	public void setTelemetryEnabled(boolean enabled) {
+		telemetry = enabled ? new StepTelemetry() : null;
+	}
+	
+	public StepTelemetry getTelemetry() {
+		return telemetry;
+	}
+	
+	// wakes up a paused simulation thread, otherwise runs after the next step
+	public void invokeBetweenSteps(Runnable task) {
+		pendingTasks.add(task);
+		
+		clock.wake();
+	}
+	
+	private void runPendingTasks() {
+		Runnable task;
+		
+		while ((task = pendingTasks.poll()) != null) {
+			task.run();
+		}
+	}
+	
+	@Override
+	public MatchEventBus getEventBus() {
+		return eventBus;
 	}
 	
 	public void addStepListener(StepListener listener) {
@@ -147,18 +315,114 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 		return robotControllers;
 	}
 
-	public int getFps() {
+	// steps per simulated second, or per real second when running unbounded
+	public double getFps() {
 		if (this.timewarp == 0) {
-			return 0;
+			return 0.0;
+		} else if (this.timewarp == SimulationClock.UNBOUNDED) {
+			return stepMetrics.getRate();
 		}
 		
-		return (int)(fpsCounter.getFps() / (timewarp / 100.0f));
+		return stepMetrics.getRate() / (timewarp / 100.0f);
+	}
+	
+	// measured steps per real second, zero while paused
+	public double getStepRate() {
+		return stepMetrics.getRate();
+	}
+	
+	public RollingMetrics getStepMetrics() {
+		return stepMetrics;
 	}
 	
 	public float getDuration() {
 		return duration;
 	}
 	
+	public long getStepCount() {
+		return stepCount;
+	}
+	
+	public FrameState createFrameState() {
+		return new FrameState(
+			balls.size(),
+			yellowRobot != null ? yellowRobot.getWheels().size() : 0,
+			blueRobot != null ? blueRobot.getWheels().size() : 0,
+			robotControllers.size()
+		);
+	}
+	
+	// the frame must come from createFrameState()
+	public void captureFrame(FrameState frame) {
+		frame.step = stepCount;
+		frame.duration = duration;
+		frame.yellowScore = getYellowScore();
+		frame.blueScore = getBlueScore();
+		
+		for (int i = 0; i < frame.ballCount; i++) {
+			Ball ball = balls.get(i);
+			Vec2 position = ball.getBody().getPosition();
+			
+			frame.ballX[i] = position.x;
+			frame.ballY[i] = position.y;
+			frame.ballActive[i] = ball.isActive();
+		}
+		
+		captureRobot(frame, FrameState.YELLOW, yellowRobot);
+		captureRobot(frame, FrameState.BLUE, blueRobot);
+		
+		for (int i = 0; i < frame.controllerCount; i++) {
+			robotControllers.get(i).captureFrame(frame, i);
+		}
+	}
+	
+	private void captureRobot(FrameState frame, int index, Robot robot) {
+		frame.robotPresent[index] = robot != null;
+		
+		if (robot == null) {
+			return;
+		}
+		
+		Body body = robot.getBody();
+		
+		frame.robotX[index] = body.getPosition().x;
+		frame.robotY[index] = body.getPosition().y;
+		frame.robotAngle[index] = body.getAngle();
+		frame.robotHeading[index] = robot.getHeading();
+		frame.robotPower[index] = robot.getPower();
+		
+		List<Wheel> wheels = robot.getWheels();
+		float[] powers = frame.wheelPowers[index];
+		
+		for (int i = 0; i < powers.length; i++) {
+			powers[i] = wheels.get(i).getPower();
+		}
+	}
+	
+	// call after the robots and controllers are set and before the simulation thread is started
+	public FrameExchange enableFrameExchange() {
+		FrameState frame = createFrameState();
+		
+		captureFrame(frame);
+		
+		frameExchange = new FrameExchange(frame);
+		
+		return frameExchange;
+	}
+	
+	public FrameExchange getFrameExchange() {
+		return frameExchange;
+	}
+	
+	private void publishFrame() {
+		FrameExchange frameExchange = this.frameExchange;
+		
+		if (frameExchange != null) {
+			captureFrame(frameExchange.getWriteFrame());
+			frameExchange.publish();
+		}
+	}
+	
 	public float getFieldWidth() {
 		return fieldWidth;
 	}
@@ -211,8 +475,8 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 		float margin = 0.2f;
 		
 		for (int i = 0; i < Math.floor(count / 2.0f); i++) {
-			float x = Util.random(margin, fieldWidth / 2.0f - margin);
-			float y = Util.random(margin, fieldHeight - margin * 2.0f);
+			float x = ballRandom.nextFloat(margin, fieldWidth / 2.0f - margin);
+			float y = ballRandom.nextFloat(margin, fieldHeight - margin * 2.0f);
 			
 			createBall(x, y);
 			createBall(fieldWidth - x, fieldHeight - y);
@@ -221,8 +485,8 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 			Ball ball = createBall(x, y);
 			
 			float force = 2.0f;
-			float fx = Util.random(0.0f, force) * timeStep;
-			float fy = Util.random(0.0f, force) * timeStep;
+			float fx = ballRandom.nextFloat(0.0f, force) * timeStep;
+			float fy = ballRandom.nextFloat(0.0f, force) * timeStep;
 			
 			ball.getBody().applyLinearImpulse(new Vec2(fx, fy), new Vec2(0, 0));
 			*/
@@ -238,7 +502,7 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 	}
 	
 	private Ball createBall(float x, float y) {
-		Ball ball = new Ball(world, x ,y);
+		Ball ball = new Ball(world, nextBallId++, x ,y);
 		
 		balls.add(ball);
 		stepListeners.add(ball);
@@ -285,6 +549,8 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 	private Goal createGoal(Side side, float x, float y, float width, float depth, float angle) {
 		Goal goal = new Goal(world, side, x, y, width, depth, angle);
 		
+		staticBodies.add(goal.getBody());
+		
 		return goal;
 	}
 	
@@ -293,45 +559,293 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 		wallDef.position.set(new Vec2(x, y));
 		Body wall = world.createBody(wallDef);
 		
+		staticBodies.add(wall);
+		
         PolygonShape shapeDef = new PolygonShape();
         shapeDef.setAsBox(wallDepth / 2.0f, width / 2.0f, new Vec2(0.0f, 0.0f), angle * (float)Math.PI / 180.0f);
         Fixture fixture = wall.createFixture(shapeDef, 0.0f);
         
         fixture.setRestitution(wallRestitution);
         fixture.setFriction(wallFriction);
+        
+        CollisionCategory.apply(fixture, CollisionCategory.WALL, CollisionCategory.WALL_MASK);
 	}
 
-	@Override
-	public void run() {
-		while (true) {
-			if (timewarp == 0) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				
-				continue;
+	// call between steps, from the simulation thread or while it is paused
+	public Snapshot snapshot() {
+		Snapshot snapshot = new Snapshot(snapshotFloatCapacity, snapshotIntCapacity);
+		
+		snapshot(snapshot);
+		snapshot.trim();
+		
+		return snapshot;
+	}
+	
+	public void snapshot(Snapshot snapshot) {
+		snapshot.clear();
+		
+		snapshot.writeInt(world.getBodyCount());
+		snapshot.writeInt(stepListeners.size());
+		snapshot.writeFloat(duration);
+		snapshot.writeLong(stepCount);
+		
+		Body body = world.getBodyList();
+		
+		while (body != null) {
+			Vec2 position = body.getPosition();
+			Vec2 velocity = body.getLinearVelocity();
+			
+			snapshot.writeBoolean(body.isActive());
+			snapshot.writeFloat(position.x);
+			snapshot.writeFloat(position.y);
+			snapshot.writeFloat(body.getAngle());
+			snapshot.writeFloat(velocity.x);
+			snapshot.writeFloat(velocity.y);
+			snapshot.writeFloat(body.getAngularVelocity());
+			snapshot.writeBoolean(body.isAwake());
+			
+			body = body.getNext();
+		}
+		
+		snapshot.writeInt(blueGoal.getBallCount());
+		snapshot.writeInt(yellowGoal.getBallCount());
+		
+		snapshot.writeLong(ballRandom.getSeed());
+		snapshot.writeLong(ballRandom.getGamma());
+		
+		for (StepListener stepListener : stepListeners) {
+			if (stepListener instanceof Restorable) {
+				((Restorable)stepListener).saveState(snapshot);
+			}
+		}
+		
+		snapshotFloatCapacity = snapshot.getFloatCount();
+		snapshotIntCapacity = snapshot.getIntCount();
+	}
+	
+	// the solver's warm starting data is not saved, so a restored simulation follows
+	// the original closely but not bit for bit
+	public void restore(Snapshot snapshot) {
+		snapshot.rewind();
+		
+		if (snapshot.readInt() != world.getBodyCount() || snapshot.readInt() != stepListeners.size()) {
+			throw new IllegalArgumentException("Snapshot was taken from a differently set up simulation");
+		}
+		
+		duration = snapshot.readFloat();
+		stepCount = snapshot.readLong();
+		
+		Body body = world.getBodyList();
+		
+		// contact callbacks caused by the teleported or reactivated bodies are not real
+		// events, the scores and ball states are restored below anyway
+		restoring = true;
+		
+		while (body != null) {
+			boolean active = snapshot.readBoolean();
+			
+			// deactivating ends the contacts of retired balls, activating creates proxies
+			if (body.isActive() != active) {
+				body.setActive(active);
 			}
 			
-			fpsCounter.registerFrame();
+			restoreVec.x = snapshot.readFloat();
+			restoreVec.y = snapshot.readFloat();
+			float angle = snapshot.readFloat();
 			
-			for (StepListener stepListener : stepListeners) {
-				stepListener.stepBeforePhysics(timeStep);
+			// moving a body updates the broadphase, skip the ones that are already in place
+			if (body.getType() != BodyType.STATIC && (!body.getPosition().equals(restoreVec) || body.getAngle() != angle)) {
+				body.setTransform(restoreVec, angle);
 			}
 			
-			world.step(timeStep, velocityAccuracy, positionAccuracy);
+			restoreVec.x = snapshot.readFloat();
+			restoreVec.y = snapshot.readFloat();
+			
+			body.setLinearVelocity(restoreVec);
+			body.setAngularVelocity(snapshot.readFloat());
+			body.setAwake(snapshot.readBoolean());
+			
+			body = body.getNext();
+		}
+		
+		world.updateContacts();
+		restoring = false;
+		
+		blueGoal.setBallCount(snapshot.readInt());
+		yellowGoal.setBallCount(snapshot.readInt());
+		
+		ballRandom.setState(snapshot.readLong(), snapshot.readLong());
+		
+		ballGrid.rebuild(balls);
+		
+		for (StepListener stepListener : stepListeners) {
+			if (stepListener instanceof Restorable) {
+				((Restorable)stepListener).restoreState(snapshot);
+			}
+		}
+		
+		publishFrame();
+	}
+	
+	public void step() {
+		stepMetrics.record(timeStep);
+		
+		// events are stamped with the step they happen in
+		eventBus.setStep(stepCount + 1);
+		
+		// read once so the whole step is measured by the same instruments
+		StepProfiler profiler = this.profiler;
+		StepTelemetry telemetry = this.telemetry;
+		
+		if (profiler != null) {
+			profiler.beginStep(stepListeners);
+		}
+		
+		if (telemetry != null) {
+			telemetry.beginStep(stepListeners);
+		}
+		
+		stepListeners(true, profiler, telemetry);
+		
+		if (profiler != null) {
+			profiler.worldStarted();
+		}
+		
+		if (telemetry != null) {
+			telemetry.worldStarted();
+		}
+		
+		world.step(timeStep, velocityAccuracy, positionAccuracy);
+		
+		if (telemetry != null) {
+			telemetry.worldFinished();
+		}
+		
+		if (profiler != null) {
+			profiler.worldFinished();
+		}
+		
+		updateBallRetirement();
+		ballGrid.rebuild(balls);
+		
+		duration += timeStep;
+		stepCount++;
+		
+		stepListeners(false, profiler, telemetry);
+		publishFrame();
+		
+		if (profiler != null) {
+			profiler.endStep();
+		}
+		
+		if (telemetry != null) {
+			telemetry.endStep(world, balls);
+		}
+		
+		runPendingTasks();
+	}
+	
+	private void stepListeners(boolean beforePhysics, StepProfiler profiler, StepTelemetry telemetry) {
+		for (int i = 0; i < stepListeners.size(); i++) {
+			StepListener stepListener = stepListeners.get(i);
+			
+			if (profiler != null) {
+				profiler.listenerStarted(i);
+			}
 			
-			duration += timeStep;
+			if (telemetry != null) {
+				telemetry.listenerStarted(i);
+			}
 			
-			for (StepListener stepListener : stepListeners) {
+			if (beforePhysics) {
+				stepListener.stepBeforePhysics(timeStep);
+			} else {
 				stepListener.stepAfterPhysics(timeStep);
 			}
 			
-			try {
-				Thread.sleep((long)((timeStep / (timewarp / 100.0f)) * 1000.0f));
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+			if (telemetry != null) {
+				telemetry.listenerFinished(i, beforePhysics);
+			}
+			
+			if (profiler != null) {
+				profiler.listenerFinished(i, beforePhysics);
+			}
+		}
+	}
+
+	private void updateBallRetirement() {
+		if (ballRetirement == BallRetirement.KEEP) {
+			return;
+		}
+		
+		for (int i = 0; i < scoredBalls.size(); i++) {
+			// ends the goal contact too, which deactivates the ball as leaving the goal would
+			scoredBalls.get(i).retire(duration);
+		}
+		
+		scoredBalls.clear();
+		
+		if (ballRetirement != BallRetirement.RESPAWN) {
+			return;
+		}
+		
+		for (int i = 0; i < balls.size(); i++) {
+			Ball ball = balls.get(i);
+			
+			if (ball.isRetired() && duration - ball.getRetiredTime() >= ballRespawnDelay) {
+				respawnBall(ball);
+			}
+		}
+	}
+	
+	// tries again on the next step if there is no free spot
+	private void respawnBall(Ball ball) {
+		float margin = 0.2f;
+		float clearance = ball.getRadius() * 2.0f;
+		
+		for (int attempt = 0; attempt < 10; attempt++) {
+			float x = ballRandom.nextFloat(margin, fieldWidth - margin);
+			float y = ballRandom.nextFloat(margin, fieldHeight - margin);
+			
+			spawnArea.lowerBound.set(x - clearance, y - clearance);
+			spawnArea.upperBound.set(x + clearance, y + clearance);
+			spawnQuery.occupied = false;
+			
+			world.queryAABB(spawnQuery, spawnArea);
+			
+			if (!spawnQuery.occupied) {
+				ball.returnToPlay(x, y);
+				
+				eventBus.publish(MatchEvent.Type.BALL_RESPAWNED, null, ball.getId(), x, y, 0.0f);
+				
+				return;
+			}
+		}
+	}
+	
+	@Override
+	public void run() {
+		try {
+			run(Long.MAX_VALUE);
+		} catch (InterruptedException e) {
+			return;
+		}
+	}
+	
+	// takes given number of steps paced by the clock, so pausing and the timewarp apply
+	public void run(long steps) throws InterruptedException {
+		long remaining = steps;
+		
+		while (remaining > 0) {
+			int dueSteps = clock.awaitSteps();
+			
+			// tasks may have woken up a paused simulation
+			runPendingTasks();
+			
+			for (int i = 0; i < dueSteps && remaining > 0; i++) {
+				step();
+				
+				remaining--;
 			}
 		}
 	}
@@ -349,32 +863,71 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 
 	@Override
 	public void beginContact(Contact contact) {
-		Score score = resolveScore(contact);
+		int categories = getCategories(contact);
 		
-		if (score != null && score.ball.isActive()) {
-			System.out.println("Ball #" + score.ball.getId() + " entered " + score.goal.getSide());
+		// sensors follow the contacts during a restore too, they are not part of snapshots
+		if (categories == (CollisionCategory.BALL | CollisionCategory.ROBOT_SENSOR)) {
+			BallSensor sensor = (BallSensor)getUserData(contact, CollisionCategory.ROBOT_SENSOR);
 			
-			score.goal.increaseBallCount();
+			sensor.ballEntered((Ball)getUserData(contact, CollisionCategory.BALL));
+			
+			return;
+		}
+		
+		if (restoring || categories != (CollisionCategory.BALL | CollisionCategory.GOAL)) {
+			return;
+		}
+		
+		Goal goal = (Goal)getUserData(contact, CollisionCategory.GOAL);
+		Ball ball = (Ball)getUserData(contact, CollisionCategory.BALL);
+		
+		if (ball.isActive()) {
+			goal.increaseBallCount();
+			
+			eventBus.publish(MatchEvent.Type.GOAL, goal.getSide(), ball.getId(), ball.getX(), ball.getY(), goal.getBallCount());
+			
+			// bodies can't be changed during the world step, they are retired right after it
+			if (ballRetirement != BallRetirement.KEEP) {
+				scoredBalls.add(ball);
+			}
 		}
 	}
 
 	@Override
 	public void endContact(Contact contact) {
-		Score score = resolveScore(contact);
+		int categories = getCategories(contact);
 		
-		if (score != null) {
-			score.ball.deactivate();
+		if (categories == (CollisionCategory.BALL | CollisionCategory.ROBOT_SENSOR)) {
+			BallSensor sensor = (BallSensor)getUserData(contact, CollisionCategory.ROBOT_SENSOR);
 			
-			/*
-			if (score.goal.getSide() == Simulation.Side.BLUE) {
-				Manifold manifold = contact.getManifold();
-				
-				if (manifold.localNormal.y <= 0.0f) {
-					score.ball.deactivate();
-				}
+			sensor.ballLeft((Ball)getUserData(contact, CollisionCategory.BALL));
+			
+			return;
+		}
+		
+		if (restoring || categories != (CollisionCategory.BALL | CollisionCategory.GOAL)) {
+			return;
+		}
+		
+		Goal goal = (Goal)getUserData(contact, CollisionCategory.GOAL);
+		Ball ball = (Ball)getUserData(contact, CollisionCategory.BALL);
+		boolean wasActive = ball.isActive();
+		
+		ball.deactivate();
+		
+		if (wasActive) {
+			eventBus.publish(MatchEvent.Type.BALL_DEACTIVATED, goal.getSide(), ball.getId(), ball.getX(), ball.getY(), 0.0f);
+		}
+		
+		/*
+		if (goal.getSide() == Simulation.Side.BLUE) {
+			Manifold manifold = contact.getManifold();
+			
+			if (manifold.localNormal.y <= 0.0f) {
+				ball.deactivate();
 			}
-			*/
 		}
+		*/
 	}
 
 	@Override
@@ -387,44 +940,13 @@ public class Simulation implements Runnable, GameInfo, StepListener, ContactList
 
 	}
 	
-	private Score resolveScore(Contact contact) {
-		Score score = null;
-		
-		Fixture first = contact.getFixtureA();
-		Fixture second = contact.getFixtureB();
-		
-		Object obj1 = first.getUserData();
-		Object obj2 = second.getUserData();
-		
-		Goal goal = null;
-		Ball ball = null;
-		
-		if (obj1 instanceof Goal) {
-			goal = (Goal)obj1;
-		} else if (obj2 instanceof Goal) {
-			goal = (Goal)obj2;
-		}
-		
-		if (obj1 instanceof Ball) {
-			ball = (Ball)obj1;
-		} else if (obj2 instanceof Ball) {
-			ball = (Ball)obj2;
-		}
-		
-		if (goal != null && ball != null) {
-			score = new Score(goal, ball);
-		}
-		
-		return score;
+	private static int getCategories(Contact contact) {
+		return CollisionCategory.of(contact.getFixtureA()) | CollisionCategory.of(contact.getFixtureB());
 	}
 	
-	private class Score {
-		public Score(Goal goal, Ball ball) {
-			this.goal = goal;
-			this.ball = ball;
-		}
+	private static Object getUserData(Contact contact, int category) {
+		Fixture fixtureA = contact.getFixtureA();
 		
-		public Goal goal;
-		public Ball ball;
+		return CollisionCategory.of(fixtureA) == category ? fixtureA.getUserData() : contact.getFixtureB().getUserData();
 	}
 }
@@ -0,0 +1,136 @@
+package ee.ut.robotex.simulation;
+
+import java.util.concurrent.locks.LockSupport;
+
+// fixed-step scheduler that decides when the simulation thread should take its next steps,
+// at most getMaxCatchUpSteps() steps are run at once and the rest of a backlog is dropped
+public class SimulationClock {
+	public static final float UNBOUNDED = Float.POSITIVE_INFINITY;
+
+	private volatile float timewarp = 100.0f;
+	private volatile long stepNanos;
+	private volatile Thread waiter;
+	private volatile boolean woken = false;
+	private int maxCatchUpSteps = 5;
+	private double accumulator = 0.0;
+	private long lastTime = -1;
+
+	public SimulationClock(float timeStep) {
+		setTimeStep(timeStep);
+	}
+
+	public void setTimeStep(float timeStep) {
+		stepNanos = (long)(timeStep * 1000000000.0);
+	}
+
+	// sets the simulation speed in percent of real time, 0 to pause
+	public void setTimewarp(float timewarp) {
+		this.timewarp = timewarp;
+
+		// wake up the simulation thread so the new speed takes effect immediately
+		Thread thread = waiter;
+
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	public float getTimewarp() {
+		return timewarp;
+	}
+
+	// makes the waiting simulation thread return from awaitSteps() without any steps, even
+	// when paused, so it can look at what it was woken up for
+	public void wake() {
+		woken = true;
+
+		Thread thread = waiter;
+
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	public boolean isPaused() {
+		return timewarp == 0.0f;
+	}
+
+	public boolean isUnbounded() {
+		return timewarp == UNBOUNDED;
+	}
+
+	public void setMaxCatchUpSteps(int maxCatchUpSteps) {
+		this.maxCatchUpSteps = maxCatchUpSteps;
+	}
+
+	public int getMaxCatchUpSteps() {
+		return maxCatchUpSteps;
+	}
+
+	// blocks until at least one step is due and returns the number of steps to take now, or
+	// 0 when woken up by wake(), always call from the same thread
+	public int awaitSteps() throws InterruptedException {
+		waiter = Thread.currentThread();
+
+		try {
+			while (true) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+
+				if (woken) {
+					woken = false;
+
+					return 0;
+				}
+
+				float currentTimewarp = timewarp;
+				long now = System.nanoTime();
+
+				if (currentTimewarp == 0.0f) {
+					// paused, forget the time spent waiting
+					lastTime = -1;
+
+					LockSupport.park(this);
+
+					continue;
+				}
+
+				if (currentTimewarp == UNBOUNDED) {
+					lastTime = now;
+					accumulator = 0.0;
+
+					return 1;
+				}
+
+				if (lastTime == -1) {
+					lastTime = now;
+				}
+
+				double rate = currentTimewarp / 100.0;
+				long step = stepNanos;
+
+				accumulator += (now - lastTime) * rate;
+				lastTime = now;
+
+				if (accumulator >= step) {
+					int steps = (int)(accumulator / step);
+
+					if (steps > maxCatchUpSteps) {
+						// too far behind to ever catch up, drop the backlog
+						steps = maxCatchUpSteps;
+						accumulator = 0.0;
+					} else {
+						accumulator -= steps * (double)step;
+					}
+
+					return steps;
+				}
+
+				LockSupport.parkNanos(this, (long)((step - accumulator) / rate));
+			}
+		} finally {
+			waiter = null;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package ee.ut.robotex.simulation;
+
+import java.util.Map;
+
+// live telemetry and control of a running simulation over JMX, see SimulationMonitor, times
+// are in microseconds since the start or the last resetStatistics()
+public interface SimulationMXBean {
+	public double getStepRate();
+
+	public double getWorldStepMeanMicros();
+
+	public double getWorldStepP99Micros();
+
+	// returns the mean time of both step phases of every robot controller
+	public Map<String, Double> getControllerStepMeanMicros();
+
+	public Map<String, Double> getControllerStepP99Micros();
+
+	public int getContactCount();
+
+	public int getActiveBallCount();
+
+	public int getYellowScore();
+
+	public int getBlueScore();
+
+	// returns the simulated duration in seconds
+	public float getDuration();
+
+	public long getStepCount();
+
+	// returns the simulation speed in percent of real time
+	public float getTimewarp();
+
+	public void setTimewarp(float timewarp);
+
+	public boolean isPaused();
+
+	public void pause();
+
+	// continues at the speed the simulation had before it was paused
+	public void resume();
+
+	// takes a snapshot between two steps and keeps it for restoreSnapshot(), returns a
+	// short description of it
+	public String takeSnapshot();
+
+	public void restoreSnapshot();
+
+	public void resetStatistics();
+}
@@ -0,0 +1,255 @@
+package ee.ut.robotex.simulation;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import ee.ut.robotex.util.TimingHistogram;
+
+// publishes a simulation as an MBean named "ee.ut.robotex:type=Simulation,name=...",
+// registering turns on the simulation's StepTelemetry
+public class SimulationMonitor implements SimulationMXBean {
+	private static final long TASK_TIMEOUT_SECONDS = 5;
+
+	private Simulation simulation;
+	private ObjectName objectName;
+	private volatile float resumeTimewarp = 100.0f;
+	private volatile Snapshot lastSnapshot;
+
+	private SimulationMonitor(Simulation simulation, ObjectName objectName) {
+		this.simulation = simulation;
+		this.objectName = objectName;
+	}
+
+	// enables the telemetry of given simulation and registers it under given name, which
+	// must be unique among the registered simulations
+	public static SimulationMonitor register(Simulation simulation, String name) {
+		try {
+			ObjectName objectName = new ObjectName("ee.ut.robotex:type=Simulation,name=" + ObjectName.quote(name));
+			SimulationMonitor monitor = new SimulationMonitor(simulation, objectName);
+
+			simulation.setTelemetryEnabled(true);
+
+			ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, objectName);
+
+			return monitor;
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register simulation " + name, e);
+		}
+	}
+
+	// removes the MBean and turns the telemetry off again
+	public void unregister() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not unregister " + objectName, e);
+		}
+
+		simulation.setTelemetryEnabled(false);
+	}
+
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	public Snapshot getLastSnapshot() {
+		return lastSnapshot;
+	}
+
+	@Override
+	public double getStepRate() {
+		return simulation.getStepRate();
+	}
+
+	@Override
+	public double getWorldStepMeanMicros() {
+		StepTelemetry telemetry = simulation.getTelemetry();
+
+		return telemetry != null ? telemetry.getWorldStepTime().getMean() / 1000.0 : 0.0;
+	}
+
+	@Override
+	public double getWorldStepP99Micros() {
+		StepTelemetry telemetry = simulation.getTelemetry();
+
+		return telemetry != null ? telemetry.getWorldStepTime().getPercentile(99.0) / 1000.0 : 0.0;
+	}
+
+	@Override
+	public Map<String, Double> getControllerStepMeanMicros() {
+		return getControllerTimes(-1.0);
+	}
+
+	@Override
+	public Map<String, Double> getControllerStepP99Micros() {
+		return getControllerTimes(99.0);
+	}
+
+	// returns given percentile of every controller's step time, the mean when negative,
+	// controllers with the same name are told apart by a number
+	private Map<String, Double> getControllerTimes(double percentile) {
+		Map<String, Double> times = new LinkedHashMap<String, Double>();
+		StepTelemetry telemetry = simulation.getTelemetry();
+
+		if (telemetry == null) {
+			return times;
+		}
+
+		for (StepTelemetry.ControllerStats stats : telemetry.getControllerStats()) {
+			TimingHistogram stepTime = stats.getStepTime();
+			String name = stats.getName();
+
+			for (int i = 2; times.containsKey(name); i++) {
+				name = stats.getName() + " #" + i;
+			}
+
+			times.put(name, (percentile < 0.0 ? stepTime.getMean() : stepTime.getPercentile(percentile)) / 1000.0);
+		}
+
+		return times;
+	}
+
+	@Override
+	public int getContactCount() {
+		StepTelemetry telemetry = simulation.getTelemetry();
+
+		return telemetry != null ? telemetry.getContactCount() : 0;
+	}
+
+	@Override
+	public int getActiveBallCount() {
+		StepTelemetry telemetry = simulation.getTelemetry();
+
+		return telemetry != null ? telemetry.getActiveBallCount() : 0;
+	}
+
+	@Override
+	public int getYellowScore() {
+		return simulation.getYellowScore();
+	}
+
+	@Override
+	public int getBlueScore() {
+		return simulation.getBlueScore();
+	}
+
+	@Override
+	public float getDuration() {
+		return simulation.getDuration();
+	}
+
+	@Override
+	public long getStepCount() {
+		return simulation.getStepCount();
+	}
+
+	@Override
+	public float getTimewarp() {
+		return simulation.getTimewarp();
+	}
+
+	@Override
+	public void setTimewarp(float timewarp) {
+		if (timewarp < 0.0f || Float.isNaN(timewarp)) {
+			throw new IllegalArgumentException("Timewarp must not be negative: " + timewarp);
+		}
+
+		simulation.setTimewarp(timewarp);
+	}
+
+	@Override
+	public boolean isPaused() {
+		return simulation.getClock().isPaused();
+	}
+
+	@Override
+	public void pause() {
+		if (!isPaused()) {
+			resumeTimewarp = simulation.getTimewarp();
+
+			simulation.setTimewarp(0.0f);
+		}
+	}
+
+	@Override
+	public void resume() {
+		if (isPaused()) {
+			simulation.setTimewarp(resumeTimewarp);
+		}
+	}
+
+	@Override
+	public String takeSnapshot() {
+		return callBetweenSteps(new Callable<String>() {
+			@Override
+			public String call() {
+				Snapshot snapshot = simulation.snapshot();
+
+				lastSnapshot = snapshot;
+
+				return String.format("Snapshot at %.2fs, %d bytes", simulation.getDuration(), snapshot.getSizeInBytes());
+			}
+		});
+	}
+
+	@Override
+	public void restoreSnapshot() {
+		final Snapshot snapshot = lastSnapshot;
+
+		if (snapshot == null) {
+			throw new IllegalStateException("No snapshot has been taken");
+		}
+
+		callBetweenSteps(new Callable<Void>() {
+			@Override
+			public Void call() {
+				simulation.restore(snapshot);
+
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public void resetStatistics() {
+		StepTelemetry telemetry = simulation.getTelemetry();
+
+		if (telemetry != null) {
+			telemetry.reset();
+		}
+	}
+
+	private <T> T callBetweenSteps(Callable<T> task) {
+		FutureTask<T> future = new FutureTask<T>(task);
+
+		simulation.invokeBetweenSteps(future);
+
+		try {
+			return future.get(TASK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(false);
+
+			throw new IllegalStateException("The simulation thread did not respond, is the simulation running?");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new IllegalStateException("Interrupted while waiting for the simulation thread");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Simulation task failed", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package ee.ut.robotex.simulation;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.World;
+
+// jbox2d world with access to the contact manager, needed to bring contacts up to date
+// after bodies have been moved outside of a step
+class SimulationWorld extends World {
+
+	public SimulationWorld(Vec2 gravity, boolean doSleep) {
+		super(gravity, doSleep);
+	}
+
+	// creates contacts for newly overlapping fixtures and updates or removes the existing
+	// ones, firing the contact listener as a step would
+	public void updateContacts() {
+		m_contactManager.findNewContacts();
+		m_contactManager.collide();
+	}
+}
@@ -0,0 +1,118 @@
+package ee.ut.robotex.simulation;
+
+// complete state of a simulation at one point in time, see Simulation.snapshot(), not
+// thread-safe, restoring moves the read cursor
+public class Snapshot {
+	private float[] floats;
+	private int[] ints;
+	private int floatCount = 0;
+	private int intCount = 0;
+	private int floatPosition = 0;
+	private int intPosition = 0;
+
+	public Snapshot() {
+		this(64, 64);
+	}
+
+	public Snapshot(int floatCapacity, int intCapacity) {
+		floats = new float[Math.max(floatCapacity, 1)];
+		ints = new int[Math.max(intCapacity, 1)];
+	}
+
+	public void writeFloat(float value) {
+		if (floatCount == floats.length) {
+			float[] grown = new float[floats.length * 2];
+			System.arraycopy(floats, 0, grown, 0, floatCount);
+			floats = grown;
+		}
+
+		floats[floatCount++] = value;
+	}
+
+	public void writeInt(int value) {
+		if (intCount == ints.length) {
+			int[] grown = new int[ints.length * 2];
+			System.arraycopy(ints, 0, grown, 0, intCount);
+			ints = grown;
+		}
+
+		ints[intCount++] = value;
+	}
+
+	public void writeBoolean(boolean value) {
+		writeInt(value ? 1 : 0);
+	}
+
+	public void writeLong(long value) {
+		writeInt((int)(value >>> 32));
+		writeInt((int)value);
+	}
+
+	public float readFloat() {
+		if (floatPosition >= floatCount) {
+			throw new IllegalStateException("Snapshot has no more float values");
+		}
+
+		return floats[floatPosition++];
+	}
+
+	public int readInt() {
+		if (intPosition >= intCount) {
+			throw new IllegalStateException("Snapshot has no more int values");
+		}
+
+		return ints[intPosition++];
+	}
+
+	public boolean readBoolean() {
+		return readInt() != 0;
+	}
+
+	public long readLong() {
+		long high = readInt();
+		long low = readInt() & 0xffffffffL;
+
+		return (high << 32) | low;
+	}
+
+	// clears the contents so the snapshot can be reused without allocating
+	public void clear() {
+		floatCount = 0;
+		intCount = 0;
+		rewind();
+	}
+
+	// moves the read cursor back to the beginning
+	public void rewind() {
+		floatPosition = 0;
+		intPosition = 0;
+	}
+
+	// shrinks the backing arrays to the used size
+	public void trim() {
+		if (floats.length > floatCount) {
+			float[] trimmed = new float[Math.max(floatCount, 1)];
+			System.arraycopy(floats, 0, trimmed, 0, floatCount);
+			floats = trimmed;
+		}
+
+		if (ints.length > intCount) {
+			int[] trimmed = new int[Math.max(intCount, 1)];
+			System.arraycopy(ints, 0, trimmed, 0, intCount);
+			ints = trimmed;
+		}
+	}
+
+	public int getFloatCount() {
+		return floatCount;
+	}
+
+	public int getIntCount() {
+		return intCount;
+	}
+
+	// approximate memory used by the snapshot contents in bytes
+	public int getSizeInBytes() {
+		return (floats.length + ints.length) * 4;
+	}
+}
@@ -0,0 +1,262 @@
+package ee.ut.robotex.simulation;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ee.ut.robotex.robot.Robot;
+import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.util.TimingHistogram;
+
+// measures where the time of a simulation step goes: every step listener in both phases,
+// the physics world step and the bytes each of them allocates
+public class StepProfiler {
+	private com.sun.management.ThreadMXBean threadBean;
+	private long threadId;
+	private ListenerStats[] listenerStats = new ListenerStats[0];
+	private TimingHistogram stepTime = new TimingHistogram();
+	private TimingHistogram worldStepTime = new TimingHistogram();
+	private long worldAllocatedBytes = 0;
+	private long stepStartTime;
+	private long partStartTime;
+	private long partAllocatedBytes;
+	private long summaryInterval = 0;
+	private PrintStream summaryStream;
+	private long lastSummaryTime;
+
+	// timings and allocations of a single step listener
+	public static class ListenerStats {
+		private final StepListener listener;
+		private final String name;
+		private final TimingHistogram beforePhysics = new TimingHistogram();
+		private final TimingHistogram afterPhysics = new TimingHistogram();
+		private long allocatedBytes = 0;
+
+		public ListenerStats(StepListener listener) {
+			this.listener = listener;
+			this.name = describe(listener);
+		}
+
+		public StepListener getListener() {
+			return listener;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public TimingHistogram getBeforePhysics() {
+			return beforePhysics;
+		}
+
+		public TimingHistogram getAfterPhysics() {
+			return afterPhysics;
+		}
+
+		// returns the bytes allocated in both phases, 0 if the JVM can't measure it
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		private void reset() {
+			beforePhysics.reset();
+			afterPhysics.reset();
+			allocatedBytes = 0;
+		}
+	}
+
+	public StepProfiler() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			threadBean = (com.sun.management.ThreadMXBean)bean;
+
+			if (threadBean.isThreadAllocatedMemorySupported()) {
+				threadBean.setThreadAllocatedMemoryEnabled(true);
+			} else {
+				threadBean = null;
+			}
+		}
+
+		lastSummaryTime = System.nanoTime();
+	}
+
+	// prints getSummary() to given stream every given number of seconds and starts
+	// collecting anew, 0 disables the periodic summary
+	public void setSummaryInterval(float seconds, PrintStream stream) {
+		summaryInterval = (long)(seconds * 1000000000.0);
+		summaryStream = stream;
+		lastSummaryTime = System.nanoTime();
+	}
+
+	void beginStep(List<StepListener> listeners) {
+		if (listenerStats.length != listeners.size() || !matches(listeners)) {
+			updateListeners(listeners);
+		}
+
+		threadId = Thread.currentThread().getId();
+		stepStartTime = System.nanoTime();
+	}
+
+	void listenerStarted(int index) {
+		partStarted();
+	}
+
+	void listenerFinished(int index, boolean beforePhysics) {
+		ListenerStats stats = listenerStats[index];
+
+		(beforePhysics ? stats.beforePhysics : stats.afterPhysics).record(System.nanoTime() - partStartTime);
+		stats.allocatedBytes += getAllocatedBytes() - partAllocatedBytes;
+	}
+
+	void worldStarted() {
+		partStarted();
+	}
+
+	void worldFinished() {
+		worldStepTime.record(System.nanoTime() - partStartTime);
+		worldAllocatedBytes += getAllocatedBytes() - partAllocatedBytes;
+	}
+
+	void endStep() {
+		long currentTime = System.nanoTime();
+
+		stepTime.record(currentTime - stepStartTime);
+
+		if (summaryInterval > 0 && currentTime - lastSummaryTime >= summaryInterval) {
+			summaryStream.println(getSummary());
+
+			reset();
+
+			lastSummaryTime = currentTime;
+		}
+	}
+
+	// the listeners and the world step run one after another, never nested
+	private void partStarted() {
+		partAllocatedBytes = getAllocatedBytes();
+		partStartTime = System.nanoTime();
+	}
+
+	private long getAllocatedBytes() {
+		return threadBean != null ? threadBean.getThreadAllocatedBytes(threadId) : 0;
+	}
+
+	private boolean matches(List<StepListener> listeners) {
+		for (int i = 0; i < listenerStats.length; i++) {
+			if (listenerStats[i].listener != listeners.get(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void updateListeners(List<StepListener> listeners) {
+		Map<StepListener, ListenerStats> existing = new IdentityHashMap<StepListener, ListenerStats>();
+
+		for (ListenerStats stats : listenerStats) {
+			existing.put(stats.listener, stats);
+		}
+
+		ListenerStats[] updated = new ListenerStats[listeners.size()];
+
+		for (int i = 0; i < updated.length; i++) {
+			StepListener listener = listeners.get(i);
+			ListenerStats stats = existing.get(listener);
+
+			updated[i] = stats != null ? stats : new ListenerStats(listener);
+		}
+
+		listenerStats = updated;
+	}
+
+	public void reset() {
+		for (ListenerStats stats : listenerStats) {
+			stats.reset();
+		}
+
+		stepTime.reset();
+		worldStepTime.reset();
+		worldAllocatedBytes = 0;
+	}
+
+	public long getStepCount() {
+		return stepTime.getCount();
+	}
+
+	public TimingHistogram getStepTime() {
+		return stepTime;
+	}
+
+	public TimingHistogram getWorldStepTime() {
+		return worldStepTime;
+	}
+
+	public long getWorldAllocatedBytes() {
+		return worldAllocatedBytes;
+	}
+
+	public boolean isAllocationSupported() {
+		return threadBean != null;
+	}
+
+	public List<ListenerStats> getListenerStats() {
+		List<ListenerStats> stats = new ArrayList<ListenerStats>();
+
+		Collections.addAll(stats, listenerStats);
+
+		return stats;
+	}
+
+	// returns a table of mean and 99th percentile times in microseconds and bytes allocated
+	// per step
+	public String getSummary() {
+		long steps = Math.max(getStepCount(), 1);
+		StringBuilder summary = new StringBuilder();
+
+		summary.append(String.format("Step profile over %d steps%n", getStepCount()));
+		summary.append(String.format("%-28s %9s %9s %9s %9s %10s%n", "", "before", "p99", "after", "p99", "B/step"));
+
+		appendLine(summary, "Step", stepTime, null, -1, steps);
+		appendLine(summary, "World step", worldStepTime, null, worldAllocatedBytes, steps);
+
+		for (ListenerStats stats : listenerStats) {
+			appendLine(summary, stats.name, stats.beforePhysics, stats.afterPhysics, stats.allocatedBytes, steps);
+		}
+
+		return summary.toString();
+	}
+
+	private void appendLine(StringBuilder summary, String name, TimingHistogram before, TimingHistogram after, long allocatedBytes, long steps) {
+		summary.append(String.format(
+			"%-28s %9.2f %9.2f %9s %9s %10s%n",
+			name,
+			before.getMean() / 1000.0,
+			before.getPercentile(99.0) / 1000.0,
+			after != null ? String.format("%.2f", after.getMean() / 1000.0) : "",
+			after != null ? String.format("%.2f", after.getPercentile(99.0) / 1000.0) : "",
+			allocatedBytes >= 0 && threadBean != null ? Long.toString(allocatedBytes / steps) : ""
+		));
+	}
+
+	private static String describe(StepListener listener) {
+		if (listener instanceof Robot) {
+			Robot robot = (Robot)listener;
+
+			return robot.getName() + " " + robot.getSide();
+		} else if (listener instanceof RobotController) {
+			return ((RobotController)listener).getName();
+		} else if (listener instanceof Ball) {
+			return "Ball #" + ((Ball)listener).getId();
+		}
+
+		String name = listener.getClass().getSimpleName();
+
+		return name.length() > 0 ? name : listener.getClass().getName();
+	}
+}
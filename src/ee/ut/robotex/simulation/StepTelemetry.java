@@ -0,0 +1,168 @@
+package ee.ut.robotex.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jbox2d.dynamics.World;
+
+import ee.ut.robotex.robot.RobotController;
+import ee.ut.robotex.util.TimingHistogram;
+
+// cheap counters for watching a long running simulation, unlike StepProfiler it never
+// measures allocations so it can stay on for hours
+public class StepTelemetry {
+	private TimingHistogram worldStepTime = new TimingHistogram();
+	private StepListener[] listeners = new StepListener[0];
+	private ControllerStats[] listenerStats = new ControllerStats[0];
+	private volatile List<ControllerStats> controllerStats = Collections.emptyList();
+	private volatile int contactCount = 0;
+	private volatile int activeBallCount = 0;
+	private volatile boolean resetRequested = false;
+	private long partStartTime;
+
+	// time a single robot controller takes per step, both phases together
+	public static class ControllerStats {
+		private final RobotController controller;
+		private final TimingHistogram stepTime = new TimingHistogram();
+		private long beforePhysicsTime = 0;
+
+		public ControllerStats(RobotController controller) {
+			this.controller = controller;
+		}
+
+		public RobotController getController() {
+			return controller;
+		}
+
+		public String getName() {
+			return controller.getName();
+		}
+
+		public TimingHistogram getStepTime() {
+			return stepTime;
+		}
+	}
+
+	void beginStep(List<StepListener> stepListeners) {
+		if (listeners.length != stepListeners.size() || !matches(stepListeners)) {
+			updateListeners(stepListeners);
+		}
+	}
+
+	void listenerStarted(int index) {
+		// only the robot controllers are of interest
+		if (listenerStats[index] != null) {
+			partStartTime = System.nanoTime();
+		}
+	}
+
+	void listenerFinished(int index, boolean beforePhysics) {
+		ControllerStats stats = listenerStats[index];
+
+		if (stats == null) {
+			return;
+		}
+
+		long time = System.nanoTime() - partStartTime;
+
+		if (beforePhysics) {
+			stats.beforePhysicsTime = time;
+		} else {
+			stats.stepTime.record(stats.beforePhysicsTime + time);
+		}
+	}
+
+	void worldStarted() {
+		partStartTime = System.nanoTime();
+	}
+
+	void worldFinished() {
+		worldStepTime.record(System.nanoTime() - partStartTime);
+	}
+
+	void endStep(World world, List<Ball> balls) {
+		int activeBalls = 0;
+
+		for (int i = 0; i < balls.size(); i++) {
+			if (balls.get(i).isActive()) {
+				activeBalls++;
+			}
+		}
+
+		contactCount = world.getContactCount();
+		activeBallCount = activeBalls;
+
+		if (resetRequested) {
+			resetRequested = false;
+
+			worldStepTime.reset();
+
+			for (ControllerStats stats : controllerStats) {
+				stats.stepTime.reset();
+			}
+		}
+	}
+
+	private boolean matches(List<StepListener> stepListeners) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] != stepListeners.get(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void updateListeners(List<StepListener> stepListeners) {
+		StepListener[] updated = stepListeners.toArray(new StepListener[stepListeners.size()]);
+		ControllerStats[] updatedStats = new ControllerStats[updated.length];
+		List<ControllerStats> controllers = new ArrayList<ControllerStats>();
+
+		for (int i = 0; i < updated.length; i++) {
+			if (!(updated[i] instanceof RobotController)) {
+				continue;
+			}
+
+			// keep the statistics of controllers that were already there
+			for (int j = 0; j < listeners.length; j++) {
+				if (listeners[j] == updated[i]) {
+					updatedStats[i] = listenerStats[j];
+				}
+			}
+
+			if (updatedStats[i] == null) {
+				updatedStats[i] = new ControllerStats((RobotController)updated[i]);
+			}
+
+			controllers.add(updatedStats[i]);
+		}
+
+		listeners = updated;
+		listenerStats = updatedStats;
+		controllerStats = Collections.unmodifiableList(controllers);
+	}
+
+	// starts collecting the timings anew from the next step on, may be called from any
+	// thread
+	public void reset() {
+		resetRequested = true;
+	}
+
+	public TimingHistogram getWorldStepTime() {
+		return worldStepTime;
+	}
+
+	public List<ControllerStats> getControllerStats() {
+		return controllerStats;
+	}
+
+	// returns the number of contacts in the physics world after the last step
+	public int getContactCount() {
+		return contactCount;
+	}
+
+	public int getActiveBallCount() {
+		return activeBallCount;
+	}
+}
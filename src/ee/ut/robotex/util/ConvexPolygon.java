@@ -0,0 +1,141 @@
+package ee.ut.robotex.util;
+
+// small convex polygon for the point tests of sensor regions, the vertices may be in either
+// winding order but must be convex
+public class ConvexPolygon {
+	private final int vertexCount;
+	private final float[] x;
+	private final float[] y;
+	private final float[] normalX;
+	private final float[] normalY;
+	private final float[] offset;
+	private float minX;
+	private float minY;
+	private float maxX;
+	private float maxY;
+	private boolean empty = true;
+
+	public ConvexPolygon(int vertexCount) {
+		if (vertexCount < 3) {
+			throw new IllegalArgumentException("A polygon needs at least 3 vertices, got " + vertexCount);
+		}
+
+		this.vertexCount = vertexCount;
+		this.x = new float[vertexCount];
+		this.y = new float[vertexCount];
+		this.normalX = new float[vertexCount];
+		this.normalY = new float[vertexCount];
+		this.offset = new float[vertexCount];
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	// moves the vertex at given index, call update() once all the vertices have been moved
+	public void setPoint(int index, float x, float y) {
+		this.x[index] = x;
+		this.y[index] = y;
+	}
+
+	public float getX(int index) {
+		return x[index];
+	}
+
+	public float getY(int index) {
+		return y[index];
+	}
+
+	// recomputes the edge half-planes and the bounds from the current vertices
+	public void update() {
+		float area = 0.0f;
+
+		minX = x[0];
+		minY = y[0];
+		maxX = x[0];
+		maxY = y[0];
+
+		for (int i = 0; i < vertexCount; i++) {
+			int next = i + 1 == vertexCount ? 0 : i + 1;
+
+			area += x[i] * y[next] - x[next] * y[i];
+
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		empty = area == 0.0f;
+
+		// counter-clockwise polygons have the inside to the left of every edge
+		float sign = area > 0.0f ? 1.0f : -1.0f;
+
+		for (int i = 0; i < vertexCount; i++) {
+			int next = i + 1 == vertexCount ? 0 : i + 1;
+
+			normalX[i] = (y[i] - y[next]) * sign;
+			normalY[i] = (x[next] - x[i]) * sign;
+			offset[i] = normalX[i] * x[i] + normalY[i] * y[i];
+		}
+	}
+
+	public float getMinX() {
+		return minX;
+	}
+
+	public float getMinY() {
+		return minY;
+	}
+
+	public float getMaxX() {
+		return maxX;
+	}
+
+	public float getMaxY() {
+		return maxY;
+	}
+
+	// returns whether given point is inside the polygon or on its boundary, there is no
+	// bounds check
+	public boolean contains(float px, float py) {
+		boolean inside = !empty;
+
+		// non-short-circuit and, every edge is tested so there is nothing to mispredict
+		for (int i = 0; i < vertexCount; i++) {
+			inside &= normalX[i] * px + normalY[i] * py >= offset[i];
+		}
+
+		return inside;
+	}
+
+	// tests the first count points of given arrays, storing the results into inside,
+	// returns the number of points inside
+	public int contains(float[] px, float[] py, int count, boolean[] inside) {
+		int found = 0;
+
+		for (int j = 0; j < count; j++) {
+			boolean result = contains(px[j], py[j]);
+
+			inside[j] = result;
+			found += result ? 1 : 0;
+		}
+
+		return found;
+	}
+
+	// keeps those of the first count indices whose point is inside at the front of the
+	// index array, returns the number kept
+	public int filter(float[] px, float[] py, int[] indices, int count) {
+		int kept = 0;
+
+		for (int j = 0; j < count; j++) {
+			int index = indices[j];
+
+			indices[kept] = index;
+			kept += contains(px[index], py[index]) ? 1 : 0;
+		}
+
+		return kept;
+	}
+}
@@ -0,0 +1,113 @@
+package ee.ut.robotex.util;
+
+// seeded, splittable pseudo random number generator (SplitMix64, as
+// java.util.SplittableRandom), not thread-safe, split() a stream per user
+public class RandomSource {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final float FLOAT_UNIT = 1.0f / (1 << 24);
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+	private long seed;
+	private long gamma;
+
+	public RandomSource(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private RandomSource(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	// returns a new independent generator, advancing this one
+	public RandomSource split() {
+		return new RandomSource(mix64(nextSeed()), mixGamma(nextSeed()));
+	}
+
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	public int nextInt() {
+		return mix32(nextSeed());
+	}
+
+	// returns an integer in range [0, bound)
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("Bound must be positive: " + bound);
+		}
+
+		return (int)(((nextInt() & 0xffffffffL) * bound) >>> 32);
+	}
+
+	public boolean nextBoolean() {
+		return nextInt() < 0;
+	}
+
+	// returns a float in range [0, 1)
+	public float nextFloat() {
+		return (nextLong() >>> 40) * FLOAT_UNIT;
+	}
+
+	// returns a float in range [min, max)
+	public float nextFloat(float min, float max) {
+		return min + nextFloat() * (max - min);
+	}
+
+	// returns a double in range [0, 1)
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	// returns a normally distributed value with mean 0 and standard deviation 1
+	public double nextGaussian() {
+		// Box-Muller without caching the second value so the state stays a single seed
+		double u1 = 1.0 - nextDouble();
+		double u2 = nextDouble();
+
+		return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+	}
+
+	// current internal state, restoring it with setState() replays the same sequence
+	public long getSeed() {
+		return seed;
+	}
+
+	public long getGamma() {
+		return gamma;
+	}
+
+	public void setState(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+		return z ^ (z >>> 31);
+	}
+
+	private static int mix32(long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+
+		return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+
+		// ensure enough bit transitions for a good quality stream
+		int n = Long.bitCount(z ^ (z >>> 1));
+
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
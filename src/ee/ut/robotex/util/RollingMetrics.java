@@ -0,0 +1,243 @@
+package ee.ut.robotex.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// rolling window of timestamped events such as simulation steps or drawn frames, recorded
+// by a single thread and summarized by any
+public class RollingMetrics {
+	public static final int DEFAULT_CAPACITY = 4096;
+	public static final long DEFAULT_WINDOW_NANOS = 1000000000L;
+
+	private final long[] times;
+	private final float[] simulated;
+	private final int mask;
+	private final long windowNanos;
+	private final AtomicLong recorded = new AtomicLong();
+	private volatile long firstIndex = 0;
+
+	public RollingMetrics() {
+		this(DEFAULT_CAPACITY, DEFAULT_WINDOW_NANOS);
+	}
+
+	// creates metrics keeping given number of events, rounded up to a power of two, and
+	// summarizing the events of the last given number of nanoseconds
+	public RollingMetrics(int capacity, long windowNanos) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+
+		this.times = new long[size];
+		this.simulated = new float[size];
+		this.mask = size - 1;
+		this.windowNanos = windowNanos;
+	}
+
+	public int getCapacity() {
+		return times.length;
+	}
+
+	public long getWindowNanos() {
+		return windowNanos;
+	}
+
+	public void record() {
+		record(System.nanoTime(), 0.0f);
+	}
+
+	// records an event that happened now and advanced simulated time by given amount
+	public void record(float simulatedSeconds) {
+		record(System.nanoTime(), simulatedSeconds);
+	}
+
+	public void record(long nanoTime, float simulatedSeconds) {
+		long index = recorded.get();
+		int slot = (int)(index & mask);
+
+		times[slot] = nanoTime;
+		simulated[slot] = simulatedSeconds;
+
+		// publishes the slot to readers, who never look past the recorded count
+		recorded.lazySet(index + 1);
+	}
+
+	// forgets all events recorded so far, to be called from the recording thread
+	public void reset() {
+		firstIndex = recorded.get();
+	}
+
+	// returns the total number of events recorded, including ones outside the window
+	public long getRecordedCount() {
+		return recorded.get() - firstIndex;
+	}
+
+	// returns the number of events per second over the window without calculating any
+	// percentiles, zero when no events happened during the window
+	public double getRate() {
+		return summarize(null, System.nanoTime());
+	}
+
+	// summarizes the events of the window into given summary, which may be reused
+	public Summary summarize(Summary summary) {
+		if (summary.intervals.length < times.length) {
+			summary.intervals = new long[times.length];
+		}
+
+		summarize(summary, System.nanoTime());
+
+		return summary;
+	}
+
+	public Summary summarize() {
+		return summarize(new Summary());
+	}
+
+	private double summarize(Summary summary, long now) {
+		long windowStart = now - windowNanos;
+		long end;
+		long lowest;
+		int count;
+		int intervalCount;
+		long newest;
+		long oldest;
+		double simulatedTotal;
+		boolean windowFull;
+
+		// retry when the writer went round the ring and overwrote events being read
+		do {
+			end = recorded.get();
+
+			// the slot after the newest event may be being written already
+			long start = Math.max(firstIndex, end - times.length + 1);
+
+			count = 0;
+			intervalCount = 0;
+			newest = 0;
+			oldest = 0;
+			simulatedTotal = 0.0;
+			windowFull = false;
+
+			// walk from the newest event back to the start of the window
+			for (long i = end - 1; i >= start; i--) {
+				long time = times[(int)(i & mask)];
+
+				if (time - windowStart < 0) {
+					windowFull = true;
+
+					break;
+				}
+
+				if (count > 0) {
+					if (summary != null) {
+						summary.intervals[intervalCount++] = oldest - time;
+					}
+
+					// simulated time of an event was spent since the one before it
+					simulatedTotal += simulated[(int)((i + 1) & mask)];
+				} else {
+					newest = time;
+				}
+
+				oldest = time;
+				count++;
+			}
+
+			lowest = windowFull ? end - count - 1 : end - count;
+		} while (lowest < recorded.get() - times.length + 1);
+
+		double span;
+		double rate;
+		double simulatedRate;
+
+		if (count == 0) {
+			span = 0.0;
+			rate = 0.0;
+			simulatedRate = 0.0;
+		} else if (windowFull) {
+			// events go back past the window, so the whole window was measured
+			span = newest - windowStart;
+			rate = count / (windowNanos / 1000000000.0);
+			simulatedRate = (simulatedTotal + simulated[(int)((end - count) & mask)]) / (windowNanos / 1000000000.0);
+		} else {
+			span = newest - oldest;
+			rate = span > 0 ? (count - 1) / (span / 1000000000.0) : 0.0;
+			simulatedRate = span > 0 ? simulatedTotal / (span / 1000000000.0) : 0.0;
+		}
+
+		if (summary != null) {
+			Arrays.sort(summary.intervals, 0, intervalCount);
+
+			summary.count = count;
+			summary.intervalCount = intervalCount;
+			summary.rate = rate;
+			summary.simulatedRate = simulatedRate;
+			summary.spanNanos = (long)span;
+		}
+
+		return rate;
+	}
+
+	// summary of the events of one window, owned by the thread that asks for it
+	public static class Summary {
+		private long[] intervals = new long[0];
+		private int count = 0;
+		private int intervalCount = 0;
+		private double rate = 0.0;
+		private double simulatedRate = 0.0;
+		private long spanNanos = 0;
+
+		public int getCount() {
+			return count;
+		}
+
+		// returns the number of events per wall clock second
+		public double getRate() {
+			return rate;
+		}
+
+		// returns the simulated seconds per wall clock second, 1.0 is real time
+		public double getSimulatedRate() {
+			return simulatedRate;
+		}
+
+		// returns the wall clock time the summary covers
+		public long getSpanNanos() {
+			return spanNanos;
+		}
+
+		// returns the time between events below which given percentage of the intervals in
+		// the window fall, in nanoseconds
+		public long getPercentile(double percentile) {
+			if (intervalCount == 0) {
+				return 0;
+			}
+
+			int rank = (int)Math.ceil(percentile / 100.0 * intervalCount) - 1;
+
+			return intervals[Math.max(0, Math.min(intervalCount - 1, rank))];
+		}
+
+		public long getMax() {
+			return intervalCount == 0 ? 0 : intervals[intervalCount - 1];
+		}
+
+		public double getPercentileMillis(double percentile) {
+			return getPercentile(percentile) / 1000000.0;
+		}
+
+		public double getMaxMillis() {
+			return getMax() / 1000000.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+				"%.1f/s, %.2fx real time, ms p50 %.2f p95 %.2f p99 %.2f max %.2f",
+				rate,
+				simulatedRate,
+				getPercentileMillis(50.0),
+				getPercentileMillis(95.0),
+				getPercentileMillis(99.0),
+				getMaxMillis()
+			);
+		}
+	}
+}